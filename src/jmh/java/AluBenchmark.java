@@ -0,0 +1,164 @@
+import helpers.FlagsRegister;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the AluTables lookups against the branch-per-flag code they replaced in Cpu.
+ * Each benchmark runs the operation over every possible 8-bit input.
+ *
+ *     mvn -Pjmh package -DskipTests
+ *     java -jar target/benchmarks.jar AluBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AluBenchmark {
+
+    private FlagsRegister flags;
+
+    @Setup
+    public void setup() {
+        flags = new FlagsRegister("Flags", 8, 0);
+    }
+
+    //<editor-fold desc=" RL " defaultstate="collapsed">
+    @Benchmark
+    @OperationsPerInvocation(256)
+    public int rlBranches() {
+        int acc = 0;
+        for (int value = 0; value < 256; value++) {
+            boolean bit7 = ((value & 0b10000000) > 0);
+            boolean oldcarry = flags.readC();
+            int result = (value << 1) & 0b1111_1111;
+            result |= oldcarry ? 1 : 0;
+
+            if (result == 0) {
+                flags.setZ();
+            }
+            else {
+                flags.clearZ();
+            }
+            flags.clearN();
+            flags.clearH();
+            if (bit7) {
+                flags.setC();
+            }
+            else {
+                flags.clearC();
+            }
+            acc += result;
+        }
+        return acc + flags.read();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(256)
+    public int rlTable() {
+        int acc = 0;
+        for (int value = 0; value < 256; value++) {
+            int oldcarry = flags.readC() ? 1 : 0;
+            int entry = AluTables.RL[value] & ~(oldcarry << 15);
+            flags.write(entry >> 8);
+            acc += (entry & 0xFF) | oldcarry;
+        }
+        return acc + flags.read();
+    }
+    //</editor-fold>
+
+    //<editor-fold desc=" SRL " defaultstate="collapsed">
+    @Benchmark
+    @OperationsPerInvocation(256)
+    public int srlBranches() {
+        int acc = 0;
+        for (int value = 0; value < 256; value++) {
+            boolean carry = (value & 0b00000001) != 0;
+            int result = value >> 1;
+
+            if (result == 0) {
+                flags.setZ();
+            }
+            else {
+                flags.clearZ();
+            }
+            if (carry) {
+                flags.setC();
+            }
+            else {
+                flags.clearC();
+            }
+            flags.clearN();
+            flags.clearH();
+            acc += result;
+        }
+        return acc + flags.read();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(256)
+    public int srlTable() {
+        int acc = 0;
+        for (int value = 0; value < 256; value++) {
+            int entry = AluTables.SRL[value];
+            flags.write(entry >> 8);
+            acc += entry & 0xFF;
+        }
+        return acc + flags.read();
+    }
+    //</editor-fold>
+
+    //<editor-fold desc=" DAA " defaultstate="collapsed">
+    @Benchmark
+    @OperationsPerInvocation(256)
+    public int daaBranches() {
+        int acc = 0;
+        for (int value = 0; value < 256; value++) {
+            int op = value;
+
+            if (!flags.readN()) {
+                if (flags.readH() || ((op & 0xF) > 9)) {
+                    op += 0x06;
+                }
+                if (flags.readC() || (op > 0x9F)) {
+                    op += 0x60;
+                }
+            }
+            else {
+                if (flags.readH()) {
+                    op = (op - 6) & 0xFF;
+                }
+                if (flags.readC()) {
+                    op -= 0x60;
+                }
+            }
+
+            flags.clearH();
+            flags.clearZ();
+            if ((op & 0x100) == 0x100) {
+                flags.setC();
+            }
+            op &= 0xFF;
+            if (op == 0) {
+                flags.setZ();
+            }
+            acc += op;
+        }
+        return acc + flags.read();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(256)
+    public int daaTable() {
+        int acc = 0;
+        for (int value = 0; value < 256; value++) {
+            int entry = AluTables.DAA[((flags.read() & 0b0111_0000) << 4) | value];
+            flags.write(entry >> 8);
+            acc += entry & 0xFF;
+        }
+        return acc + flags.read();
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,100 @@
+import helpers.Logger;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scanline rendering from the pre-drawn background maps. staticTitle renders frames of the
+ * tetris title screen, where nothing changes and every line is a copy out of the map.
+ * scrollingMap scrolls pokemon's background a pixel per frame and writes a new column of
+ * tile numbers every 8 pixels like the overworld does, so cells coming into view get drawn.
+ *
+ *     mvn -Pjmh package -DskipTests
+ *     java -jar target/benchmarks.jar GpuBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GpuBenchmark {
+
+    private Gpu tetris;
+    private Gpu pokemon;
+    private MemoryManager pokemonMmu;
+    private MbcManager tetrisMbc;
+    private MbcManager pokemonMbc;
+
+    @Setup
+    public void setup() {
+        Main.skipBootrom = true;
+        Display.reset();
+        Display.getTestInstace();
+        Emulator emulator = boot("src/main/resources/tetris.gb", 3_000_000);
+        tetris = emulator.gpu;
+        tetrisMbc = emulator.mbc;
+        emulator = boot("src/main/resources/pokebluejp.gb", 6_000_000);
+        pokemon = emulator.gpu;
+        pokemonMmu = emulator.mmu;
+        pokemonMbc = emulator.mbc;
+    }
+
+    @TearDown
+    public void tearDown() {
+        tetrisMbc.close();
+        pokemonMbc.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(144)
+    public int staticTitle() {
+        return renderFrame(tetris);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(144)
+    public int scrollingMap() {
+        pokemon.scrollX = (pokemon.scrollX + 1) & 0xFF;
+        if ((pokemon.scrollX & 7) == 0) {
+            int map = (pokemon.lcdControl.getLcdControl() & 0b0000_1000) != 0 ? 0x9C00 : 0x9800;
+            int column = ((pokemon.scrollX >> 3) + 20) & 31;
+            for (int row = 0; row < 32; row++) {
+                int address = map + (row << 5);
+                pokemonMmu.writeByte(address + column, pokemonMmu.readByte(address + ((column + 7) & 31)));
+            }
+        }
+        return renderFrame(pokemon);
+    }
+
+    //<editor-fold desc=" IMPLEMENTATION " defaultstate="collapsed">
+    private static final class Emulator {
+        Gpu gpu;
+        MemoryManager mmu;
+        MbcManager mbc;
+    }
+
+    private static Emulator boot(String rom, int steps) {
+        InterruptManager.reset();
+        TimerService.reset();
+        Emulator emulator = new Emulator();
+        emulator.gpu = new Gpu(Logger.Level.FATAL);
+        emulator.mbc = new MbcManager(new Cartridge(rom), Logger.Level.FATAL);
+        emulator.mmu = new MemoryManager(emulator.mbc, emulator.gpu);
+        Cpu cpu = new Cpu(emulator.mmu, emulator.gpu, Logger.Level.FATAL);
+        cpu.skipBootrom();
+        for (int i = 0; i < steps; i++) {
+            cpu.step();
+        }
+        return emulator;
+    }
+
+    private static int renderFrame(Gpu gpu) {
+        for (int line = 0; line < 144; line++) {
+            gpu.line = line;
+            gpu.renderScanLine();
+        }
+        return gpu.line;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,101 @@
+import helpers.Logger;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the interrupt check the cpu does at the start of every step, when there's
+ * nothing to service. The step benchmarks run Cpu.step() on a JR -2 loop in wram; the
+ * check benchmarks compare the IF/IE bitmask test against the HashMap scan it replaced.
+ *
+ *     mvn -Pjmh package -DskipTests
+ *     java -jar target/benchmarks.jar InterruptBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InterruptBenchmark {
+
+    private Cpu cpu;
+    private MemoryManager mmu;
+    private MbcManager mbc;
+
+    // the old InterruptManager: one raised/enabled pair per interrupt, in an enum keyed HashMap
+    private Map<InterruptManager.InterruptTypes, boolean[]> ints = new HashMap<>();
+
+    @Setup
+    public void setup() {
+        Main.skipBootrom = true;
+        Display.getTestInstace();
+        InterruptManager.reset();
+        TimerService.reset();
+        Gpu gpu = new Gpu(Logger.Level.FATAL);
+        mbc = new MbcManager(new Cartridge("src/main/resources/tetris.gb"), Logger.Level.FATAL);
+        mmu = new MemoryManager(mbc, gpu);
+        cpu = new Cpu(mmu, gpu, Logger.Level.FATAL);
+        cpu.skipBootrom();
+        mmu.writeByte(0xC000, 0x18); // JR -2
+        mmu.writeByte(0xC001, 0xFE);
+        cpu.setRegisterValue("PC", 0xC000);
+        InterruptManager.getInstance().masterEnable();
+
+        for (InterruptManager.InterruptTypes i : InterruptManager.InterruptTypes.values()) {
+            ints.put(i, new boolean[2]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        mbc.close();
+    }
+
+    //<editor-fold desc=" STEP " defaultstate="collapsed">
+    @Benchmark
+    public int stepNothingRaised() {
+        mmu.writeByte(0xFFFF, 0x00);
+        mmu.writeByte(0xFF0F, 0x00);
+        cpu.step();
+        return cpu.getRegisterValue("PC");
+    }
+
+    @Benchmark
+    public int stepRaisedButDisabled() {
+        // games often leave IF bits set for interrupts they never enable
+        mmu.writeByte(0xFFFF, 0x00);
+        mmu.writeByte(0xFF0F, 0x02);
+        cpu.step();
+        return cpu.getRegisterValue("PC");
+    }
+    //</editor-fold>
+
+    //<editor-fold desc=" PENDING CHECK " defaultstate="collapsed">
+    @Benchmark
+    public boolean checkBitmask() {
+        InterruptManager.getInstance().raiseInterrupt(0x02);
+        return InterruptManager.getInstance().getNextInterrupt() != null;
+    }
+
+    @Benchmark
+    public boolean checkHashMap() {
+        ints.get(InterruptManager.InterruptTypes.LCDC_STATUS)[0] = true;
+
+        Map<InterruptManager.InterruptTypes, boolean[]> raised = new HashMap<>();
+        for (Map.Entry<InterruptManager.InterruptTypes, boolean[]> e : ints.entrySet()) {
+            if (e.getValue()[0]) {
+                raised.put(e.getKey(), e.getValue());
+            }
+        }
+        for (Map.Entry<InterruptManager.InterruptTypes, boolean[]> e : raised.entrySet()) {
+            if (e.getValue()[1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+    //</editor-fold>
+}
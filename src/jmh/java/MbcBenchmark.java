@@ -0,0 +1,63 @@
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rom reads through each bank controller, to check MBC5's 9 bit bank number costs nothing
+ * over MBC1 once the bank offset is worked out on the switch. Each benchmark reads a whole
+ * switchable bank, then selects the next one like a game streaming data would.
+ *
+ *     mvn -Pjmh package -DskipTests
+ *     java -jar target/benchmarks.jar MbcBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MbcBenchmark {
+
+    private Mbc mbc1;
+    private Mbc mbc5;
+    private int bank = 1;
+
+    @Setup
+    public void setup() {
+        // 2MB, the most mbc1 can address
+        ByteBuffer rom = ByteBuffer.allocateDirect(0x80 * 0x4000);
+        for (int i = 0; i < rom.capacity(); i++) {
+            rom.put(i, (byte) i);
+        }
+        mbc1 = new Mbc1(rom.duplicate(), new byte[0]);
+        mbc5 = new Mbc5(rom.duplicate(), new byte[0], false);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(0x4000)
+    public int readMbc1() {
+        bank = (bank + 1) & 0x1F;
+        mbc1.write(0x2000, bank);
+        return readBank(mbc1);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(0x4000)
+    public int readMbc5() {
+        bank = (bank + 1) & 0x7F;
+        mbc5.write(0x2000, bank);
+        mbc5.write(0x3000, 0);
+        return readBank(mbc5);
+    }
+
+    //<editor-fold desc=" IMPLEMENTATION " defaultstate="collapsed">
+    private static int readBank(Mbc mbc) {
+        int sum = 0;
+        for (int address = 0x4000; address < 0x8000; address++) {
+            sum += mbc.read(address);
+        }
+        return sum;
+    }
+    //</editor-fold>
+}
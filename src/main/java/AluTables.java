@@ -0,0 +1,102 @@
+import helpers.FlagsRegister;
+
+/**
+ * Precomputed results for the 8-bit alu operations whose flags are always fully written.
+ *
+ * Each entry packs the 8-bit result in the low byte and the new value of the flags
+ * register in the next byte up, so an instruction turns into a single array load:
+ *
+ *     int entry = AluTables.RLC[value];
+ *     result = entry & 0xFF;
+ *     writeFlags(entry >> 8);
+ *
+ * RL and RR are tabled with a carry-in of zero. The old carry is then merged in
+ * afterwards, which also clears Z since the result can no longer be zero:
+ *
+ *     int entry = AluTables.RL[value] & ~(carry << 15); // drop Z
+ *     result = (entry & 0xFF) | carry;                   // rr: carry << 7
+ *
+ * Keeping the carry out of the index matters: the carry produced by a rotate only
+ * depends on the value, so chained rotates don't wait on the previous table load.
+ *
+ * DAA takes N, H and C as inputs and is indexed by (((F >> 4) & 0b111) << 8) | A,
+ * i.e. the NHC bits sit above the accumulator.
+ *
+ * The add/sub/inc/dec family is not tabled here; their flags are already deferred
+ * through the cpu's lazy flag evaluation and cost nothing until they are read.
+ */
+final class AluTables {
+
+    static final int[] RLC  = new int[0x100];
+    static final int[] RRC  = new int[0x100];
+    static final int[] RL   = new int[0x100];
+    static final int[] RR   = new int[0x100];
+    static final int[] SLA  = new int[0x100];
+    static final int[] SRA  = new int[0x100];
+    static final int[] SRL  = new int[0x100];
+    static final int[] SWAP = new int[0x100];
+    static final int[] DAA  = new int[0x800];
+
+    static {
+        for (int value = 0; value < 0x100; value++) {
+            RLC[value] = pack(((value << 1) | (value >> 7)) & 0xFF, (value & 0x80) != 0);
+            RRC[value] = pack((value >> 1) | ((value & 1) << 7), (value & 1) != 0);
+            SLA[value] = pack((value << 1) & 0xFF, (value & 0x80) != 0);
+            SRA[value] = pack((value >> 1) | (value & 0x80), (value & 1) != 0);
+            SRL[value] = pack(value >> 1, (value & 1) != 0);
+            SWAP[value] = pack(((value & 0x0F) << 4) | (value >> 4), false);
+            RL[value] = pack((value << 1) & 0xFF, (value & 0x80) != 0);
+            RR[value] = pack(value >> 1, (value & 1) != 0);
+
+            for (int nhc = 0; nhc < 8; nhc++) {
+                DAA[(nhc << 8) | value] = daa(value, nhc << 4);
+            }
+        }
+    }
+
+    private AluTables() {
+    }
+
+    // Z set if the result is zero, N and H reset, C as given.
+    private static int pack(int result, boolean carry) {
+        int flags = result == 0 ? FlagsRegister.FLAG_Z : 0;
+        if (carry) {
+            flags |= FlagsRegister.FLAG_C;
+        }
+        return result | (flags << 8);
+    }
+
+    // see Cpu.daa() for where this comes from. N is left alone, H is reset, and C is
+    // only ever set, never cleared.
+    private static int daa(int a, int flags) {
+        int op = a;
+
+        if ((flags & FlagsRegister.FLAG_N) == 0) {
+            if ((flags & FlagsRegister.FLAG_H) != 0 || ((op & 0xF) > 9)) {
+                op += 0x06;
+            }
+            if ((flags & FlagsRegister.FLAG_C) != 0 || (op > 0x9F)) {
+                op += 0x60;
+            }
+        }
+        else {
+            if ((flags & FlagsRegister.FLAG_H) != 0) {
+                op = (op - 6) & 0xFF;
+            }
+            if ((flags & FlagsRegister.FLAG_C) != 0) {
+                op -= 0x60;
+            }
+        }
+
+        flags &= ~(FlagsRegister.FLAG_H | FlagsRegister.FLAG_Z);
+        if ((op & 0x100) == 0x100) {
+            flags |= FlagsRegister.FLAG_C;
+        }
+        op &= 0xFF;
+        if (op == 0) {
+            flags |= FlagsRegister.FLAG_Z;
+        }
+
+        return op | (flags << 8);
+    }
+}
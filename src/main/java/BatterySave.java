@@ -0,0 +1,130 @@
+import helpers.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * File created on 10/18/2026.
+ *
+ * Battery backed cartridge ram, kept in a .sav file that's mapped into memory. The cpu keeps
+ * writing to the plain ram array, so a store to 0xA000-0xBFFF is still a single store through
+ * the page table. A daemon thread compares the ram with the mapping one page at a time every
+ * interval, copies over the pages that changed and forces the mapping out. Only pages that
+ * were copied are dirty as far as the os is concerned, so they're the only ones written, and
+ * the emulation thread never waits on the disk.
+ *
+ * The flusher reads the ram while the cpu may be writing it. A page copied halfway through
+ * a game's save routine is fixed up on the next flush. close() flushes one last time, so it's
+ * only called once the cpu has stopped (see Main).
+ *
+ * The bytes after the ram (the MBC3 clock) are handed to the writer given to start() on every
+ * flush that finds changed ram, and on close(), so they're on disk as often as the ram is.
+ */
+final class BatterySave {
+    private Logger log = new Logger("SAV", Logger.Level.WARN);
+
+    static final int PAGE = 0x1000;
+
+    private final byte[] ram;
+    private final MappedByteBuffer file;
+    private final long savedLength; // how much of the file was there before it was mapped
+    private final byte[] page = new byte[PAGE];
+    private ScheduledExecutorService flusher;
+    private Consumer<ByteBuffer> writeExtra; // null if nothing goes after the ram
+
+    // maps the file with room for the ram and `extra` bytes after it, and loads the ram
+    // from what was saved
+    BatterySave(File path, byte[] ram, int extra) throws IOException {
+        this.ram = ram;
+        this.savedLength = path.length();
+        try (FileChannel channel = FileChannel.open(path.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            file = channel.map(FileChannel.MapMode.READ_WRITE, 0, ram.length + extra);
+        }
+        file.order(ByteOrder.LITTLE_ENDIAN);
+        file.get(ram, 0, (int) Math.min(ram.length, savedLength));
+        file.clear();
+    }
+
+    // true if the file already held `bytes` bytes after the ram when it was opened
+    boolean hasSaved(int bytes) {
+        return savedLength >= ram.length + bytes;
+    }
+
+    // the bytes after the ram
+    ByteBuffer extra() {
+        ByteBuffer extra = file.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        extra.position(ram.length);
+        return extra.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // flushes every intervalMillis from a daemon thread. writeExtra, if not null, fills in the
+    // bytes after the ram and has to be safe to call from that thread.
+    void start(long intervalMillis, Consumer<ByteBuffer> writeExtra) {
+        this.writeExtra = writeExtra;
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "battery save");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // an exception escaping the task would cancel every later flush without a word, so a
+        // failed flush is logged and the next interval tries again
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush(false);
+            } catch (RuntimeException e) {
+                log.error("battery save flush failed: " + e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // stops the flusher and writes out whatever is left, extra bytes included
+    void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush(true);
+    }
+
+    //<editor-fold desc=" IMPLEMENTATION " defaultstate="collapsed">
+    private synchronized void flush(boolean force) {
+        boolean dirty = false;
+        for (int start = 0; start < ram.length; start += PAGE) {
+            int length = Math.min(PAGE, ram.length - start);
+            ByteBuffer saved = file.duplicate();
+            saved.position(start);
+            saved.get(page, 0, length);
+            for (int i = 0; i < length; i++) {
+                if (page[i] != ram[start + i]) {
+                    saved.position(start);
+                    saved.put(ram, start, length);
+                    dirty = true;
+                    break;
+                }
+            }
+        }
+        // java 8 can only force the whole mapping, but only the pages written above are
+        // dirty, so they're all the os writes back
+        if (dirty || force) {
+            if (writeExtra != null) {
+                writeExtra.accept(extra());
+            }
+            file.force();
+        }
+    }
+    //</editor-fold>
+}
@@ -1,7 +1,6 @@
 import helpers.Logger;
 
-import java.io.File;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
 import java.util.Scanner;
 
 public class Cartridge {
@@ -78,7 +77,9 @@ public class Cartridge {
         //</editor-fold>
     }
 
-    private int[] rom; // the entire contents
+    private String path;
+    private RomCache.Image image; // shared with every other cartridge of the same rom
+    private ByteBuffer rom; // the entire contents, read-only
     private String title; // the game title
     private Locale locale; // japanese or non-japanese?
     private RamSize ramSize; // size of ram
@@ -102,11 +103,9 @@ public class Cartridge {
 
     private void loadRomFile(String romPath) {
         try {
-            byte[] tempRom = Files.readAllBytes(new File(romPath).toPath());
-            rom = new int[tempRom.length];
-            for (int i = 0; i < tempRom.length; i++) {
-                rom[i] = tempRom[i] & 0xFF;
-            }
+            image = RomCache.acquire(romPath);
+            path = romPath;
+            rom = image.view();
             setTitle();
             setLocale();
             setRamSize();
@@ -126,11 +125,11 @@ public class Cartridge {
         // bytes at 0x0134 through 0x0143 contain the title
         StringBuilder sb = new StringBuilder();
         for (int i = ADDRESS_TITLE_START; i <= ADDRESS_TITLE_END; i++) {
-            if (this.rom[i] == 0) { // don't process NUL game chars
+            if (readFromAddress(i) == 0) { // don't process NUL game chars
                 continue;
             }
 
-            sb.append((char) this.rom[i]);
+            sb.append((char) readFromAddress(i));
         }
         this.title = sb.toString();
     }
@@ -141,7 +140,7 @@ public class Cartridge {
 
     private void setLocale() {
         // 0x014A contains the destination code. 0 = Japan, 1 = anywhere else
-        int localeValue = rom[ADDRESS_LOCALE];
+        int localeValue = readFromAddress(ADDRESS_LOCALE);
         if (localeValue == 0x00) {
             locale = Locale.Japanese;
         }
@@ -159,7 +158,7 @@ public class Cartridge {
 
     private void setRamSize() {
         // 0x0149 is the size of the cart's ram.
-        switch (rom[ADDRESS_RAM_SIZE]) {
+        switch (readFromAddress(ADDRESS_RAM_SIZE)) {
             case 0: this.ramSize = RamSize.None; break;
             case 1: this.ramSize = RamSize.Ram2KB; break;
             case 2: this.ramSize = RamSize.Ram8KB; break;
@@ -171,11 +170,11 @@ public class Cartridge {
     }
 
     private void setRomSize() {
-        this.romSize = RomSize.getById(rom[ADDRESS_ROM_SIZE]);
+        this.romSize = RomSize.getById(readFromAddress(ADDRESS_ROM_SIZE));
     }
 
     private void setCartridgeType() {
-        this.cartridgeType = MbcManager.cartridgeTypes.get(rom[ADDRESS_CART_TYPE]);
+        this.cartridgeType = MbcManager.cartridgeTypes.get(readFromAddress(ADDRESS_CART_TYPE));
     }
 
     private void verifyHeaderChecksum() {
@@ -184,10 +183,10 @@ public class Cartridge {
         // Formula: x=0:FOR i=0134h TO 014Ch:x=x-MEM[i]-1:NEXT
         // The lower 8 bits of the result must be the same than the value in this entry.
         // The GAME WON'T WORK if this headerChecksum is incorrect.
-        expectedHeaderChecksum = rom[ADDRESS_HEADER_CHECKSUM_EXPECTED];
+        expectedHeaderChecksum = readFromAddress(ADDRESS_HEADER_CHECKSUM_EXPECTED);
         headerChecksum = 0;
         for (int i = ADDRESS_HEADER_CHECKSUM_CALCULATED_START; i <= ADDRESS_HEADER_CHECKSUM_CALCULATED_END; i++) {
-            headerChecksum = headerChecksum - rom[i] - 1;
+            headerChecksum = headerChecksum - readFromAddress(i) - 1;
         }
         headerChecksum &= 255; // mask to lower 8 bits
     }
@@ -202,7 +201,7 @@ public class Cartridge {
             bootromLogoChecksum += i;
 
         for (int i = ADDRESS_LOGO_START; i <= ADDRESS_LOGO_END; i++)
-            cartridgeLogoChecksum += rom[i];
+            cartridgeLogoChecksum += readFromAddress(i);
     }
 
     public boolean validChecksum() {
@@ -222,7 +221,27 @@ public class Cartridge {
     }
 
     public int readFromAddress(int address) {
-        return rom[address];
+        return rom.get(address) & 0xFF;
+    }
+
+    // the whole rom, so the memory manager can map banks straight into its page table
+    ByteBuffer getRom() {
+        return rom;
+    }
+
+    // where battery backed ram is saved: next to the rom, with a .sav extension
+    String getSavePath() {
+        int extension = path.lastIndexOf('.');
+        return (extension > Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')) ? path.substring(0, extension) : path) + ".sav";
+    }
+
+    // lets go of the shared rom image. the cartridge can't be read after this.
+    public void close() {
+        if (image != null) {
+            RomCache.release(image);
+            image = null;
+            rom = null;
+        }
     }
 
     public final MbcManager.CartridgeType getCartridgeType() {
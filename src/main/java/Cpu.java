@@ -14,18 +14,19 @@ public class Cpu {
         return currentInstance;
     }
 
-    // 8-bit registers
-    private Register registerA;
-    private Register registerB;
-    private Register registerC;
-    private Register registerD;
-    private Register registerE;
-    private Register registerH;
-    private Register registerL;
-
-    // 16-bit registers
-    private Register registerPC; // program counter
-    private Register registerSP; // stack pointer
+    // 8-bit registers. kept as plain ints so the instruction hot path never goes through a
+    // Register object or a map lookup. values are masked to 8 bits wherever they can overflow.
+    private int registerA;
+    private int registerB;
+    private int registerC;
+    private int registerD;
+    private int registerE;
+    private int registerH;
+    private int registerL;
+
+    // 16-bit registers, masked to 16 bits
+    private int registerPC; // program counter
+    private int registerSP; // stack pointer
 
     // _________________________________
     // | 7 | 6 | 5 | 4 | 3 | 2 | 1 | 0 |
@@ -36,48 +37,77 @@ public class Cpu {
     // H = Half-carry: set if last operation's result's lower half overflowed past 15
     // C = Carry: set if last operation produced result greater than 255 for adds or less than 0 for subtracts
     // * NOTE * The lower 4 bits always read zero even if 1 is written to them.
-    private FlagsRegister registerFlags;
-
-    private Map<String, Register> eightBitRegisters = new HashMap<>();
-    private Map<String, Register> sixteenBitRegisters = new HashMap<>();
+    private int registerF; // only up to date while lazyOp is LAZY_NONE, see readFlags()
+
+    // lazy flag evaluation. rather than working out Z/N/H/C after every alu instruction,
+    // the alu handlers record which kind of operation ran along with its operands and
+    // result. the flag bits are only computed when something actually reads them, which
+    // is usually just the conditional branch that follows, and often nothing at all.
+    private static final int LAZY_NONE = 0;
+    private static final int LAZY_ADD = 1; // add, adc.     result = a + b + carry
+    private static final int LAZY_SUB = 2; // sub, sbc, cp. result = a - b - carry
+    private static final int LAZY_AND = 3;
+    private static final int LAZY_OR = 4;  // or, xor
+    private static final int LAZY_INC = 5;
+    private static final int LAZY_DEC = 6;
+    private int lazyOp = LAZY_NONE;
+    private int lazyA;
+    private int lazyB;
+    private int lazyResult; // unmasked, so carries and borrows can be recovered
+    private boolean lazyCarry; // carry flag preserved across inc/dec
 
     private MemoryManager mmu;
     private Gpu gpu;
 
+    // opcode dispatch tables, indexed directly by opcode. built once at construction
+    // so that step() doesn't have to walk decode() or allocate a Runnable per instruction.
+    private final Runnable[] instructions = new Runnable[0x100];
+    private final Runnable[] cbInstructions = new Runnable[0x100];
+    // superinstructions, keyed by DecodeCache.sequence() of the opcodes they replace.
+    private final Map<Integer, Runnable> fusedInstructions = new HashMap<>();
+
+    // pre-decoded opcodes and immediates, see DecodeCache. while step() runs a decoded
+    // instruction, handlers take their immediates from operands instead of the mmu.
+    // calling a handler directly (like the tests do) still reads them from memory.
+    private final DecodeCache decodeCache;
+    private int operands;
+    private boolean operandsFetched = false;
+
+    // skips busy-wait loops, see IdleLoopDetector. null when it's turned off.
+    private IdleLoopDetector idleLoops;
+
+    // keeps the cycle count and steps the timer and gpu when they have something to do
+    private final Scheduler scheduler;
+
     private boolean pendingInterruptEnable = false;
     private boolean isHalted = false;
-    public boolean paused = false;
-
-    Cpu(MemoryManager memMgr, Gpu gpu) {
-        // initialize 8-bit registers
-        registerA = new Register("A", 8, 0);
-        registerB = new Register("B", 8, 0);
-        registerC = new Register("C", 8, 0);
-        registerD = new Register("D", 8, 0);
-        registerE = new Register("E", 8, 0);
-        registerH = new Register("H", 8, 0);
-        registerL = new Register("L", 8, 0);
-        registerFlags = new FlagsRegister("Flags", 8, 0);
-        eightBitRegisters.put("A", registerA);
-        eightBitRegisters.put("B", registerB);
-        eightBitRegisters.put("C", registerC);
-        eightBitRegisters.put("D", registerD);
-        eightBitRegisters.put("E", registerE);
-        eightBitRegisters.put("H", registerH);
-        eightBitRegisters.put("L", registerL);
-        eightBitRegisters.put("Flags", registerFlags);
-
-        // initialize 16-bit registers
-        registerPC = new Register("PC", 16, 0);
-        registerSP = new Register("SP", 16, 0);
-        sixteenBitRegisters.put("PC", registerPC);
-        sixteenBitRegisters.put("SP", registerSP);
+    public volatile boolean paused = false; // set from other threads, see Main
+    public boolean isHalted() {
+        return isHalted;
+    }
 
+    // fusion and idle loop skipping are per cpu so emulators sharing a jvm can each decide for
+    // their own rom. the constructors without them take the -nofuse and -noidle settings.
+    Cpu(MemoryManager memMgr, Gpu gpu, boolean fuseInstructions, boolean skipIdleLoops) {
         this.mmu = memMgr;
         this.gpu = gpu;
+        scheduler = new Scheduler(gpu);
+        mmu.setScheduler(scheduler);
+        buildInstructionTables();
+        if (fuseInstructions) {
+            buildFusedInstructions();
+        }
+        decodeCache = new DecodeCache(mmu, mmu.getMbc(), instructions, cbInstructions, fusedInstructions);
+        mmu.setDecodeCache(decodeCache);
+        if (skipIdleLoops) {
+            idleLoops = new IdleLoopDetector(this, mmu, scheduler);
+        }
         currentInstance = this;
         log.debug("initialized.");
     }
+    Cpu(MemoryManager memMgr, Gpu gpu) {
+        this(memMgr, gpu, Main.fuseInstructions, Main.idleLoopSkipping);
+    }
     Cpu(MemoryManager memMgr) {
         this(memMgr, new Gpu(Logger.Level.FATAL));
     }
@@ -89,19 +119,33 @@ public class Cpu {
         this(memMgr, gpu);
         this.log = new Logger(name, level);
     }
+    Cpu(MemoryManager memMgr, Gpu gpu, boolean fuseInstructions, boolean skipIdleLoops, Logger.Level level) {
+        this(memMgr, gpu, fuseInstructions, skipIdleLoops);
+        this.log = new Logger(name, level);
+    }
 
-    private int fetch() {
-        int opcode = mmu.readByte(registerPC.read());
-        log.debug(String.format("PC: 0x%04X    OP: 0x%04X", registerPC.read(), opcode));
-        registerPC.inc();
-
-        if (opcode == 0xcb) {
-            opcode <<= 8;
-            opcode |= mmu.readByte(registerPC.read());
-            registerPC.inc();
+    private void buildInstructionTables() {
+        for (int opcode = 0; opcode < 0x100; opcode++) {
+            instructions[opcode] = decode(opcode);
+            cbInstructions[opcode] = decode(0xcb00 | opcode);
+        }
+    }
+    private void buildFusedInstructions() {
+        for (int dec : new int[] { 0x05, 0x0d, 0x15, 0x1d, 0x25, 0x2d, 0x3d }) {
+            fusedInstructions.put(DecodeCache.sequence(dec, 0x20), () -> decJrNz(dec));
+        }
+        fusedInstructions.put(DecodeCache.sequence(0x2a, 0x12), this::ldiCopy);
+        for (int jr : new int[] { 0x20, 0x28, 0x30, 0x38 }) {
+            fusedInstructions.put(DecodeCache.sequence(0xf0, 0xfe, jr), () -> ldhCpJr(jr));
         }
+        fusedInstructions.put(DecodeCache.sequence(0xfe, 0x28), this::cpJrZ);
 
-        return opcode;
+        // the next two came out of SequenceHistogram runs over tetris and pokebluejp
+        for (int jr : new int[] { 0x20, 0x28, 0x30, 0x38 }) {
+            fusedInstructions.put(DecodeCache.sequence(0xf0, 0xa7, jr), () -> ldhAndJr(jr));
+        }
+        fusedInstructions.put(DecodeCache.sequence(0x78, 0xb1, 0x20), () -> pairZeroJrNz(0x78, 0xb1));
+        fusedInstructions.put(DecodeCache.sequence(0x7a, 0xb3, 0x20), () -> pairZeroJrNz(0x7a, 0xb3));
     }
     private Runnable decode(int opcode) {
         switch (opcode) {
@@ -148,8 +192,9 @@ public class Cpu {
             case 0xd9: return () -> reti(0xd9);
 
             case 0x39: case 0x29: case 0x19: case 0x09:
-            case 0xe8:
                 return () -> add16(opcode);
+            case 0xe8:
+                return () -> addSp(opcode);
 
             case 0xc1: case 0xd1: case 0xe1: case 0xf1:
                 return () -> pop(opcode);
@@ -158,30 +203,46 @@ public class Cpu {
                 return () -> push(opcode);
 
             //<editor-fold desc=" LOAD " default-state="collapsed">
-            case 0x01: case 0x02: case 0x06: case 0x08:
-            case 0x0a: case 0x0e: case 0x16: case 0x1a:
-            case 0x1e: case 0x21: case 0x22: case 0x26:
-            case 0x2a: case 0x2e: case 0x31: case 0x32:
-            case 0x36: case 0x3a: case 0x40: case 0x41:
-            case 0x42: case 0x43: case 0x44: case 0x45:
-            case 0x46: case 0x47: case 0x48: case 0x49:
-            case 0x4a: case 0x4b: case 0x4c: case 0x4d:
-            case 0x4e: case 0x4f: case 0x50: case 0x51:
-            case 0x52: case 0x53: case 0x54: case 0x55:
-            case 0x56: case 0x57: case 0x58: case 0x59:
-            case 0x5a: case 0x5b: case 0x5c: case 0x5d:
-            case 0x5e: case 0x5f: case 0x60: case 0x61:
-            case 0x62: case 0x63: case 0x64: case 0x65:
-            case 0x66: case 0x67: case 0x68: case 0x69:
-            case 0x6a: case 0x6b: case 0x6c: case 0x6d:
-            case 0x6e: case 0x6f: case 0x70: case 0x71:
-            case 0x72: case 0x73: case 0x74: case 0x75:
-            case 0x77: case 0x78: case 0x79: case 0x7a:
-            case 0x7b: case 0x7c: case 0x7d: case 0x7e:
-            case 0x7f: case 0xf8: case 0xf9: case 0xfa:
-            case 0x3e: case 0xf2: case 0xe0: case 0xe2:
-            case 0xea: case 0xf0: case 0x11: case 0x12:
-                return () -> load(opcode);
+            case 0x40: case 0x41: case 0x42: case 0x43:
+            case 0x44: case 0x45: case 0x46: case 0x47:
+            case 0x48: case 0x49: case 0x4a: case 0x4b:
+            case 0x4c: case 0x4d: case 0x4e: case 0x4f:
+            case 0x50: case 0x51: case 0x52: case 0x53:
+            case 0x54: case 0x55: case 0x56: case 0x57:
+            case 0x58: case 0x59: case 0x5a: case 0x5b:
+            case 0x5c: case 0x5d: case 0x5e: case 0x5f:
+            case 0x60: case 0x61: case 0x62: case 0x63:
+            case 0x64: case 0x65: case 0x66: case 0x67:
+            case 0x68: case 0x69: case 0x6a: case 0x6b:
+            case 0x6c: case 0x6d: case 0x6e: case 0x6f:
+            case 0x70: case 0x71: case 0x72: case 0x73:
+            case 0x74: case 0x75:            case 0x77:
+            case 0x78: case 0x79: case 0x7a: case 0x7b:
+            case 0x7c: case 0x7d: case 0x7e: case 0x7f:
+                return () -> ldRegister(opcode);
+
+            case 0x06: case 0x0e: case 0x16: case 0x1e:
+            case 0x26: case 0x2e: case 0x36: case 0x3e:
+                return () -> ldImmediate(opcode);
+
+            case 0x02: case 0x0a: case 0x12: case 0x1a:
+                return () -> ldIndirect(opcode);
+
+            case 0x22: case 0x2a: case 0x32: case 0x3a:
+                return () -> ldIncrementDecrement(opcode);
+
+            case 0xe0: case 0xe2: case 0xf0: case 0xf2:
+                return () -> ldHigh(opcode);
+
+            case 0xea: case 0xfa:
+                return () -> ldAbsolute(opcode);
+
+            case 0x01: case 0x11: case 0x21: case 0x31:
+                return () -> ldPairImmediate(opcode);
+
+            case 0xf9: return () -> ldSpHl(0xf9);
+            case 0xf8: return () -> ldHlSpOffset(0xf8);
+            case 0x08: return () -> ldAbsoluteSp(0x08);
             //</editor-fold>
 
             case 0x80: case 0x81: case 0x82: case 0x83:
@@ -344,9 +405,6 @@ public class Cpu {
         log.fatal(String.format("OPCODE 0x%04X NOT FOUND", opcode));
         return null;
     }
-    private void execute(Runnable operation) {
-        operation.run();
-    }
     private void processEi(int opcode) {
         // process EI instruction effects
         if (pendingInterruptEnable && opcode != 0xFB) {
@@ -356,58 +414,47 @@ public class Cpu {
         }
     }
     private void processInterrupts() {
-        // see which interrupts have been raised
-        Map<InterruptManager.InterruptTypes, InterruptManager.Interrupt> raisedInterrupts =
-                InterruptManager.getInstance().getRaisedInterrupts();
-
-        boolean isAnyInterruptGettingHandled = false;
-
-        // process each, depending on IME and if the interrupt is enabled.
-        for (Map.Entry<InterruptManager.InterruptTypes, InterruptManager.Interrupt> e : raisedInterrupts.entrySet()) {
-
-            // come out of halt mode
-            //log.debug("Exiting HALT mode because " + e.getKey().name() + " was raised.");
-            isHalted = false;
-
-            if (InterruptManager.getInstance().isMasterEnabled()) {
-                if (e.getValue().isEnabled()) {
-
-                    //if (e.getKey() != InterruptManager.InterruptTypes.VBLANK)
-                        log.info("handling " + e.getValue().name + " interrupt");
+        InterruptManager interrupts = InterruptManager.getInstance();
+        if (!interrupts.isAnyInterruptRaised()) {
+            return; // by far the most common case
+        }
 
+        // come out of halt mode, even if the interrupt won't be handled
+        isHalted = false;
 
-                    // save current address
-                    pushHelper(registerPC.read());
+        // highest priority interrupt that's raised and enabled, if IME is on
+        InterruptManager.InterruptTypes interrupt = interrupts.getNextInterrupt();
+        if (interrupt != null) {
+            log.info("handling " + interrupt.name() + " interrupt");
 
-                    // jump to interrupt handler
-                    registerPC.write(e.getKey().handler);
+            // save current address
+            pushHelper(registerPC);
 
-                    e.getValue().clear();
+            // jump to interrupt handler
+            registerPC = interrupt.handler;
 
-                    InterruptManager.getInstance().masterDisable();
+            interrupts.clearInterrupt(interrupt);
+            interrupts.masterDisable();
 
-                    consumeClockCycles(20);
-                }
-            }
+            consumeClockCycles(20);
         }
 
         // gpu interrupts are processed in gpu.step()
     }
     public void skipBootrom() {
-        registerA.write(0x01);
-        registerB.write(0x00);
-        registerC.write(0x13);
-        registerD.write(0x00);
-        registerE.write(0xD8);
-        registerH.write(0x01);
-        registerL.write(0x4D);
-        registerFlags.setZ();
-        registerFlags.clearN();
-        registerFlags.setH();
-        registerFlags.setC();
-        registerSP.write(0xFFFE);
-        registerPC.write(0x0100);
+        registerA = 0x01;
+        registerB = 0x00;
+        registerC = 0x13;
+        registerD = 0x00;
+        registerE = 0xD8;
+        registerH = 0x01;
+        registerL = 0x4D;
+        writeFlags(FlagsRegister.FLAG_Z | FlagsRegister.FLAG_H | FlagsRegister.FLAG_C);
+        registerSP = 0xFFFE;
+        registerPC = 0x0100;
+        scheduler.syncTimer();
         TimerService.getInstance().setDivBypass(0xAB); // DIV
+        scheduler.timerChanged();
         mmu.writeByte(0xFF0F, 0xE1);
         mmu.writeByte(0xFF05, 0x00); // TIMA
         mmu.writeByte(0xFF06, 0x00); // TMA
@@ -442,10 +489,7 @@ public class Cpu {
         mmu.writeByte(0xFFFF, 0x00); // IE
     }
     public void consumeClockCycles(int cycles) {
-        for (int i = 0; i < cycles; i++) {
-            TimerService.getInstance().tick();
-        }
-        gpu.step(cycles);
+        scheduler.advance(cycles);
     }
 
     // main loop
@@ -458,67 +502,128 @@ public class Cpu {
             step();
         }
     }
+    public void logStatistics() {
+        decodeCache.logStatistics();
+        if (idleLoops != null) {
+            idleLoops.logStatistics();
+        }
+    }
+    // cycles the idle loop detector skipped in the last whole frame, 0 when it's turned off
+    public long getIdleCyclesSkippedLastFrame() {
+        return idleLoops != null ? idleLoops.getCyclesSkippedLastFrame() : 0;
+    }
+    // longest halted skip while the joypad interrupt is enabled, one scanline. a key press
+    // comes in from the ui thread whenever it happens, the scheduler can't see it coming.
+    // the gpu's mode changes keep skips that short today, this keeps it so if they stop.
+    private static final int JOYPAD_HALT_SKIP = 456;
+
     public void step() {
 
         processInterrupts();
 
 
         if (!isHalted) {
-            int opcode = fetch();
-            Runnable instruction = decode(opcode);
-            if (instruction != null) {
-                execute(instruction);
-            }
-            else {
-                System.err.print("Instruction for " + opcode + " was null.");
-                System.exit(1);
+            final int pc = registerPC;
+            DecodeCache.Instruction instruction = decodeCache.fetch(pc);
+            registerPC = instruction.operandPc;
+            operands = instruction.immediate;
+            operandsFetched = true;
+            instruction.handler.run();
+            operandsFetched = false;
+            if (instruction.endsBlock && registerPC <= pc && idleLoops != null) {
+                loopedBack(pc + instruction.length);
             }
 
-            processEi(opcode);
+            processEi(instruction.opcode);
         }
         else {
-            consumeClockCycles(4);
+            // nothing runs while halted, and only the timer and gpu raise interrupts on their
+            // own, so go straight to the next time one of them has something to do instead
+            // of 4 cycles at a time. it's still a multiple of 4 so everything lines up the
+            // same. a game waiting on the joypad interrupt wakes within a scanline of the
+            // key press, however far off the next event is.
+            int cycles = scheduler.cyclesUntilNextEvent(4);
+            if ((InterruptManager.getInstance().getInterruptsEnabled()
+                    & InterruptManager.InterruptTypes.JOYPAD_INPUT.bit) != 0) {
+                cycles = Math.min(cycles, JOYPAD_HALT_SKIP);
+            }
+            consumeClockCycles(cycles);
         }
 
     }
 
-    // utility functions
-    public Register search(final String name) {
-        if (eightBitRegisters.get(name) != null) {
-            return eightBitRegisters.get(name);
+    // a jump ending at `end` went back to pc, which may be the top of a busy-wait loop.
+    // right after an EI the next step has to run with IME flipped, so that's left alone.
+    private void loopedBack(final int end) {
+        if (!pendingInterruptEnable) {
+            idleLoops.loopedBack(registerPC, end, registerA, readFlags());
         }
-        else if (sixteenBitRegisters.get(name) != null) {
-            return sixteenBitRegisters.get(name);
+    }
+
+    // utility functions
+    // the name-based accessors below are for tests and debugging. instructions
+    // work on the primitive register fields and the pair accessors directly.
+    private int registerSize(final String name) {
+        switch (name) {
+            case "A": case "B": case "C": case "D":
+            case "E": case "H": case "L": case "Flags":
+                return 8;
+            case "PC": case "SP":
+                return 16;
+            default:
+                return 0;
         }
-        else {
+    }
+    public Register search(final String name) {
+        int size = registerSize(name);
+        if (size == 0) {
             // unknown register?
             log.debug("Unknown register");
             return null;
         }
+        return new Register(name, size, getRegisterValue(name));
     }
     public int getRegisterValue(final String name) {
-        if (eightBitRegisters.get(name) != null) {
-            return eightBitRegisters.get(name).read();
-        }
-        else if (sixteenBitRegisters.get(name) != null) {
-            return sixteenBitRegisters.get(name).read();
-        }
-        else {
-            // unknown register?
-            log.error("Unknown register");
-            return -1;
+        switch (name) {
+            case "A": return registerA;
+            case "B": return registerB;
+            case "C": return registerC;
+            case "D": return registerD;
+            case "E": return registerE;
+            case "H": return registerH;
+            case "L": return registerL;
+            case "Flags": return readFlags();
+            case "PC": return registerPC;
+            case "SP": return registerSP;
+            default:
+                // unknown register?
+                log.error("Unknown register");
+                return -1;
         }
     }
     public void setRegisterValue(final String name, int value) {
-        if (eightBitRegisters.get(name) != null) {
-            eightBitRegisters.get(name).write(value);
-        }
-        else if (sixteenBitRegisters.get(name) != null) {
-            sixteenBitRegisters.get(name).write(value);
-        }
-        else {
+        int size = registerSize(name);
+        if (size == 0) {
             // unknown register?
             log.error("Unknown register");
+            return;
+        }
+        if (value < 0 || value > (size == 8 ? 0xFF : 0xFFFF)) {
+            log.error("Value " + value + " is out of range for " + size + "-bit register " + name);
+            return;
+        }
+
+        switch (name) {
+            case "A": registerA = value; break;
+            case "B": registerB = value; break;
+            case "C": registerC = value; break;
+            case "D": registerD = value; break;
+            case "E": registerE = value; break;
+            case "H": registerH = value; break;
+            case "L": registerL = value; break;
+            case "Flags": writeFlags(value); break;
+            case "PC": registerPC = value; break;
+            case "SP": registerSP = value; break;
         }
     }
     public boolean getRegisterBit(final String name, int index) {
@@ -526,991 +631,496 @@ public class Cpu {
         return r != null && r.readBit(index);
     }
     public int readCombinedRegisters(final String upper, final String lower) {
-        Register u = search(upper);
-        Register l = search(lower);
-        if (u != null && l != null) {
-            return readCombinedRegisters(u, l);
-        }
-        else {
+        if (registerSize(upper) != 8 || registerSize(lower) != 8) {
             log.debug("Did not find one of registers " + upper + ", " + lower);
             return -1;
         }
+        return (getRegisterValue(upper) << 8) | getRegisterValue(lower);
     }
     public void writeCombinedRegisters(final String upper, final String lower, int value) {
-        Register u = search(upper);
-        Register l = search(lower);
-        if (u != null && l != null) {
-            writeCombinedRegisters(u, l, value);
-        }
-        else {
+        if (registerSize(upper) != 8 || registerSize(lower) != 8) {
             log.debug("Did not find one of registers " + upper + ", " + lower);
+            return;
         }
+        setRegisterValue(upper, (value >> 8) & 0xFF);
+        setRegisterValue(lower, value & 0xFF);
+    }
+    public void load(Register destinationRegister, int number) {
+        setRegisterValue(destinationRegister.getName(), number);
     }
 
-    private int readCombinedRegisters(Register upper, Register lower) {
-        if (upper.getSize() != 8 || lower.getSize() != 8) {
-            log.fatal("one of the registers to combine wasn't an 8-bit register");
-            return -1;
+    // flags
+    private void setLazy(int op, int a, int b, int result) {
+        if (op == LAZY_INC || op == LAZY_DEC) {
+            // inc and dec leave the carry flag alone, so hold on to it before
+            // the operation it came from is replaced.
+            lazyCarry = readC();
         }
-        int result = upper.read();
-        result <<= 8;
-        result |= lower.read();
-        return result;
+        lazyOp = op;
+        lazyA = a;
+        lazyB = b;
+        lazyResult = result;
     }
-    private void writeCombinedRegisters(Register upper, Register lower, int value) {
-        if (upper.getSize() != 8 || lower.getSize() != 8) {
-            log.fatal("one of the registers to combine wasn't an 8-bit register");
-        }
-
-        if (value > 65535 || value < 0) {
-            value &= 0b1111_1111_1111_1111;
+    private int readFlags() {
+        if (lazyOp != LAZY_NONE) {
+            registerF = evaluateFlags();
+            lazyOp = LAZY_NONE;
         }
-
-        int upper8bits = value / 256; // shift right  by 8 bits;
-        int lower8bits = value & 0b0000000011111111; // mask out the upper 8 bits.
-        upper.write(upper8bits);
-        lower.write(lower8bits);
+        return registerF;
     }
-    private void load(Register destinationRegister, Register sourceRegister) {
-        destinationRegister.write(sourceRegister.read());
+    private void writeFlags(int value) {
+        // a full write replaces every flag, so any pending operation can be dropped
+        lazyOp = LAZY_NONE;
+        registerF = value & 0b1111_0000;
     }
-    public void load(Register destinationRegister, int number) {
-        destinationRegister.write(number);
+    private boolean readZ() {
+        if (lazyOp != LAZY_NONE) {
+            // every recorded operation sets Z from its 8-bit result
+            return (lazyResult & 0xFF) == 0;
+        }
+        return (registerF & FlagsRegister.FLAG_Z) != 0;
     }
-
-    // opcode implementations
-    public void load(int opcode) {
-        // temp variables to temporarily hold stuff
-        int address;
-        int temp;
-        int result;
-        int lowerValue;
-        int upperValue;
-        switch (opcode) {
-            //<editor-fold desc="3.3.1.1 8-Bit Loads - LD nn, n" defaultstate="collapsed">
-            /*
-             * 3.3.1. 8-Bit Loads
-             *   1. LD nn,n
-             *   Description:
-             *      Put value nn into n.
-             *   Use with:
-             *      nn = B,C,D,E,H,L,BC,DE,HL,SP
-             *      n = 8 bit immediate value
-             *   Opcodes:
-             *      Instruction Parameters Opcode Cycles
-             *      LD             B,n     06      8
-             *      LD             C,n     0E      8
-             *      LD             D,n     16      8
-             *      LD             E,n     1E      8
-             *      LD             H,n     26      8
-             *      LD             L,n     2E      8
-             */
-            case 0x06:
-                load(registerB, mmu.readByte(registerPC.read()));
-                registerPC.inc();
-                consumeClockCycles(8);
-                break;
-            case 0x0E:
-                load(registerC, mmu.readByte(registerPC.read()));
-                registerPC.inc();
-                consumeClockCycles(8);
-                break;
-            case 0x16:
-                load(registerD, mmu.readByte(registerPC.read()));
-                registerPC.inc();
-                consumeClockCycles(8);
-                break;
-            case 0x1E:
-                load(registerE, mmu.readByte(registerPC.read()));
-                registerPC.inc();
-                consumeClockCycles(8);
-                break;
-            case 0x26:
-                load(registerH, mmu.readByte(registerPC.read()));
-                registerPC.inc();
-                consumeClockCycles(8);
-                break;
-            case 0x2E:
-                load(registerL, mmu.readByte(registerPC.read()));
-                registerPC.inc();
-                consumeClockCycles(8);
-                break;
-            //</editor-fold>
-            //<editor-fold desc="3.3.1.2 8-Bit Loads - LD r1,r2" defaultstate="collapsed">
-            /*
-             *   2. LD r1,r2
-             *   Description:
-             *      Put value r2 into r1.
-             *   Use with:
-             *      r1,r2 = A,B,C,D,E,H,L,(HL)
-             */
-            case 0x78:
-                load(registerA, registerB);
-                consumeClockCycles(4);
-                break;
-            case 0x7F:
-                load(registerA, registerA);
-                consumeClockCycles(4);
-                break;
-            case 0x79:
-                load(registerA, registerC);
-                consumeClockCycles(4);
-                break;
-            case 0x7A:
-                load(registerA, registerD);
-                consumeClockCycles(4);
-                break;
-            case 0x7B:
-                load(registerA, registerE);
-                consumeClockCycles(4);
-                break;
-            case 0x7C:
-                load(registerA, registerH);
-                consumeClockCycles(4);
-                break;
-            case 0x7D:
-                load(registerA, registerL);
-                consumeClockCycles(4);
-                break;
-            case 0x7E:
-                address = readCombinedRegisters(registerH, registerL);
-                load(registerA, mmu.readByte(address));
-                consumeClockCycles(8);
-                break;
-            case 0x40:
-                load(registerB, registerB);
-                consumeClockCycles(4);
-                break;
-            case 0x41:
-                load(registerB, registerC);
-                consumeClockCycles(4);
-                break;
-            case 0x42:
-                load(registerB, registerD);
-                consumeClockCycles(4);
-                break;
-            case 0x43:
-                load(registerB, registerE);
-                consumeClockCycles(4);
-                break;
-            case 0x44:
-                load(registerB, registerH);
-                consumeClockCycles(4);
-                break;
-            case 0x45:
-                load(registerB, registerL);
-                consumeClockCycles(4);
-                break;
-            case 0x46:
-                address = readCombinedRegisters(registerH, registerL);
-                load(registerB, mmu.readByte(address));
-                consumeClockCycles(8);
-                break;
-            case 0x48:
-                load(registerC, registerB);
-                consumeClockCycles(4);
-                break;
-            case 0x49:
-                load(registerC, registerC);
-                consumeClockCycles(4);
-                break;
-            case 0x4A:
-                load(registerC, registerD);
-                consumeClockCycles(4);
-                break;
-            case 0x4B:
-                load(registerC, registerE);
-                consumeClockCycles(4);
-                break;
-            case 0x4C:
-                load(registerC, registerH);
-                consumeClockCycles(4);
-                break;
-            case 0x4D:
-                load(registerC, registerL);
-                consumeClockCycles(4);
-                break;
-            case 0x4E:
-                address = readCombinedRegisters(registerH, registerL);
-                load(registerC, mmu.readByte(address));
-                consumeClockCycles(8);
-                break;
-            case 0x50:
-                load(registerD, registerB);
-                consumeClockCycles(4);
-                break;
-            case 0x51:
-                load(registerD, registerC);
-                consumeClockCycles(4);
-                break;
-            case 0x52:
-                load(registerD, registerD);
-                consumeClockCycles(4);
-                break;
-            case 0x53:
-                load(registerD, registerE);
-                consumeClockCycles(4);
-                break;
-            case 0x54:
-                load(registerD, registerH);
-                consumeClockCycles(4);
-                break;
-            case 0x55:
-                load(registerD, registerL);
-                consumeClockCycles(4);
-                break;
-            case 0x56:
-                address = readCombinedRegisters(registerH, registerL);
-                load(registerD, mmu.readByte(address));
-                consumeClockCycles(8);
-                break;
-            case 0x58:
-                load(registerE, registerB);
-                consumeClockCycles(4);
-                break;
-            case 0x59:
-                load(registerE, registerC);
-                consumeClockCycles(4);
-                break;
-            case 0x5A:
-                load(registerE, registerD);
-                consumeClockCycles(4);
-                break;
-            case 0x5B:
-                load(registerE, registerE);
-                consumeClockCycles(4);
-                break;
-            case 0x5C:
-                load(registerE, registerH);
-                consumeClockCycles(4);
-                break;
-            case 0x5D:
-                load(registerE, registerL);
-                consumeClockCycles(4);
-                break;
-            case 0x5E:
-                address = readCombinedRegisters(registerH, registerL);
-                load(registerE, mmu.readByte(address));
-                consumeClockCycles(8);
-                break;
-            case 0x60:
-                load(registerH, registerB);
-                consumeClockCycles(4);
-                break;
-            case 0x61:
-                load(registerH, registerC);
-                consumeClockCycles(4);
-                break;
-            case 0x62:
-                load(registerH, registerD);
-                consumeClockCycles(4);
-                break;
-            case 0x63:
-                load(registerH, registerE);
-                consumeClockCycles(4);
-                break;
-            case 0x64:
-                load(registerH, registerH);
-                consumeClockCycles(4);
-                break;
-            case 0x65:
-                load(registerH, registerL);
-                consumeClockCycles(4);
-                break;
-            case 0x66:
-                address = readCombinedRegisters(registerH, registerL);
-                load(registerH, mmu.readByte(address));
-                consumeClockCycles(8);
-                break;
-            case 0x68:
-                load(registerL, registerB);
-                consumeClockCycles(4);
-                break;
-            case 0x69:
-                load(registerL, registerC);
-                consumeClockCycles(4);
-                break;
-            case 0x6A:
-                load(registerL, registerD);
-                consumeClockCycles(4);
-                break;
-            case 0x6B:
-                load(registerL, registerE);
-                consumeClockCycles(4);
-                break;
-            case 0x6C:
-                load(registerL, registerH);
-                consumeClockCycles(4);
-                break;
-            case 0x6D:
-                load(registerL, registerL);
-                consumeClockCycles(4);
-                break;
-            case 0x6E:
-                address = readCombinedRegisters(registerH, registerL);
-                load(registerL, mmu.readByte(address));
-                consumeClockCycles(8);
-                break;
-            case 0x70:
-                address = readCombinedRegisters(registerH, registerL);
-                mmu.writeByte(address, registerB.read());
-                consumeClockCycles(8);
-                break;
-            case 0x71:
-                address = readCombinedRegisters(registerH, registerL);
-                mmu.writeByte(address, registerC.read());
-                consumeClockCycles(8);
-                break;
-            case 0x72:
-                address = readCombinedRegisters(registerH, registerL);
-                mmu.writeByte(address, registerD.read());
-                consumeClockCycles(8);
-                break;
-            case 0x73:
-                address = readCombinedRegisters(registerH, registerL);
-                mmu.writeByte(address, registerE.read());
-                consumeClockCycles(8);
-                break;
-            case 0x74:
-                address = readCombinedRegisters(registerH, registerL);
-                mmu.writeByte(address, registerH.read());
-                consumeClockCycles(8);
-                break;
-            case 0x75:
-                address = readCombinedRegisters(registerH, registerL);
-                mmu.writeByte(address, registerL.read());
-                consumeClockCycles(8);
-                break;
-            case 0x36: // 12 cycles
-                address = readCombinedRegisters(registerH, registerL);
-                mmu.writeByte(address, mmu.readByte(registerPC.read()));
-                registerPC.inc();
-                consumeClockCycles(12);
-                break;
-            //</editor-fold>
-            //<editor-fold desc="3.3.1.3 8-bit Loads - LD A, n" defaultstate="collapsed">
-            /*
-             *  3. LD A,n
-             *  Description:
-             *     Put value n into A.
-             *  Use with:
-             *     n = A,B,C,D,E,H,L,(BC),(DE),(HL),(nn),#
-             *     nn = two byte immediate value. (LS byte first.)
-             */
-            case 0x0A:
-                load(registerA, mmu.readByte(readCombinedRegisters(registerB, registerC)));
-                consumeClockCycles(8);
-                break;  // LD A,(BC) 0A 8
-            case 0x1A:
-                load(registerA, mmu.readByte(readCombinedRegisters(registerD, registerE)));
-                consumeClockCycles(8);
-                break;  // LD A,(DE) 1A 8
-            case 0xFA: // 16 cycles
-                load(registerA, mmu.readByte(mmu.readWord(registerPC.read())));
-                registerPC.inc();
-                registerPC.inc();
-                consumeClockCycles(16);
-                break;
-            case 0x3E:
-                load(registerA, mmu.readByte(registerPC.read()));
-                registerPC.inc();
-                consumeClockCycles(8);
-                break;  // LD A,# 3E 8
-            //</editor-fold>
-            //<editor-fold desc="3.3.1.4 8-bit Loads - LD n, A" defaultstate="collapsed">
-            /*
-             *  4. LD n,A
-             *  Description:
-             *     Put value A into n.
-             *  Use with:
-             *     n = A,B,C,D,E,H,L,(BC),(DE),(HL),(nn)
-             *     nn = two byte immediate value. (LS byte first.)
-             */
-            case 0x47:
-                load(registerB, registerA);
-                consumeClockCycles(4);
-                break; // LD B,A 47 4
-            case 0x4F:
-                load(registerC, registerA);
-                consumeClockCycles(4);
-                break; // LD C,A 4F 4
-            case 0x57:
-                load(registerD, registerA);
-                consumeClockCycles(4);
-                break; // LD D,A 57 4
-            case 0x5F:
-                load(registerE, registerA);
-                consumeClockCycles(4);
-                break; // LD E,A 5F 4
-            case 0x67:
-                load(registerH, registerA);
-                consumeClockCycles(4);
-                break; // LD H,A 67 4
-            case 0x6F:
-                load(registerL, registerA);
-                consumeClockCycles(4);
-                break; // LD L,A 6F 4
-            case 0x02:
-                mmu.writeByte(readCombinedRegisters(registerB, registerC), registerA.read());
-                consumeClockCycles(8);
-                break; // LD (BC),A 02 8
-            case 0x12:
-                mmu.writeByte(readCombinedRegisters(registerD, registerE), registerA.read());
-                consumeClockCycles(8);
-                break; // LD (DE),A 12 8
-            case 0x77:
-                mmu.writeByte(readCombinedRegisters(registerH, registerL), registerA.read());
-                consumeClockCycles(8);
-                break; // LD (HL),A 77 8
-            case 0xEA: // 16 cycles
-                mmu.writeByte(mmu.readWord(registerPC.read()), registerA.read());
-                registerPC.inc();
-                registerPC.inc();
-                consumeClockCycles(16);
-                break; // LD (nn),A EA 16
-            //</editor-fold>
-            //<editor-fold desc="3.3.1.5 -- 3.3.1.20 8-bit Loads" defaultstate="collapsed">
-            case 0xF2:
-                // Put value at address $FF00 + register C into A , takes 8 cycles
-                load(registerA, mmu.readByte(registerC.read() + 0xFF00));
-                consumeClockCycles(8);
-                break;
-            case 0xE2:
-                // Put A into address $FF00 + register C , takes 8 cycles
-                mmu.writeByte(0xFF00 + registerC.read(), registerA.read());
-                consumeClockCycles(8);
-                break;
-            case 0x3A:
-                // Put value at address HL into A, Decrement HL. Takes 8 cycles
-                temp = readCombinedRegisters(registerH, registerL);
-                load(registerA, mmu.readByte(temp));
-                writeCombinedRegisters(registerH, registerL, temp - 1);
-                consumeClockCycles(8);
-                break;
-            case 0x32:
-                // put A into memory address HL. Decrement HL. Takes 8 cycles.
-                temp = readCombinedRegisters(registerH, registerL);
-                mmu.writeByte(temp, registerA.read());
-                writeCombinedRegisters(registerH, registerL, temp - 1);
-                consumeClockCycles(8);
-                break;
-            case 0x2A:
-                // Put value at address HL into A, Increment HL. Takes 8 cycles
-                temp = readCombinedRegisters(registerH, registerL);
-                load(registerA, mmu.readByte(temp));
-                writeCombinedRegisters(registerH, registerL, temp + 1);
-                consumeClockCycles(8);
-                break;
-            case 0x22:
-                // put A into memory address HL. Increment HL. Takes 8 cycles.
-                temp = readCombinedRegisters(registerH, registerL);
-                mmu.writeByte(temp, registerA.read());
-                writeCombinedRegisters(registerH, registerL, temp + 1);
-                consumeClockCycles(8);
-                break;
-            case 0xE0:
-                // Put A into memory address $FF00+n . 12 cycles
-                temp = 0xFF00 + mmu.readByte(registerPC.read());
-                mmu.writeByte(temp, registerA.read());
-                registerPC.inc();
-                consumeClockCycles(12);
-                break;
-            case 0xF0:
-                // Put memory address $FF00+n into A. 12 cycles
-                temp = 0xFF00 + mmu.readByte(registerPC.read());
-                load(registerA, mmu.readByte(temp));
-                registerPC.inc();
-                consumeClockCycles(12);
-                break;
-            //</editor-fold>
-            //<editor-fold desc="3.3.2.1 -- 3.3.2.5 16-bit Loads" defaultstate="collapsed">
-            case 0x01:
-                // LD BC,nn 01 12
-                load(registerC, mmu.readByte(registerPC.read()));
-                registerPC.inc();
-                load(registerB, mmu.readByte(registerPC.read()));
-                registerPC.inc();
-                consumeClockCycles(12);
-                break;
-            case 0x11:
-                // LD DE,nn 11 12
-                load(registerE, mmu.readByte(registerPC.read()));
-                registerPC.inc();
-                load(registerD, mmu.readByte(registerPC.read()));
-                registerPC.inc();
-                consumeClockCycles(12);
-                break;
-            case 0x21:
-                // LD HL,nn 21 12
-                load(registerL, mmu.readByte(registerPC.read()));
-                registerPC.inc();
-                load(registerH, mmu.readByte(registerPC.read()));
-                registerPC.inc();
-                consumeClockCycles(12);
+    private boolean readC() {
+        switch (lazyOp) {
+            case LAZY_NONE: return (registerF & FlagsRegister.FLAG_C) != 0;
+            case LAZY_ADD:  return lazyResult > 0xFF;
+            case LAZY_SUB:  return lazyResult < 0;
+            case LAZY_INC:
+            case LAZY_DEC:  return lazyCarry;
+            default:        return false;
+        }
+    }
+    private int evaluateFlags() {
+        int f = (lazyResult & 0xFF) == 0 ? FlagsRegister.FLAG_Z : 0;
+        switch (lazyOp) {
+            case LAZY_ADD:
+                if (((lazyA ^ lazyB ^ lazyResult) & 0x10) != 0) f |= FlagsRegister.FLAG_H;
+                if (lazyResult > 0xFF) f |= FlagsRegister.FLAG_C;
                 break;
-            case 0x31:
-                // LD SP,nn 31 12
-                load(registerSP, mmu.readWord(registerPC.read()));
-                registerPC.inc();
-                registerPC.inc();
-                consumeClockCycles(12);
+            case LAZY_SUB:
+                f |= FlagsRegister.FLAG_N;
+                if (((lazyA ^ lazyB ^ lazyResult) & 0x10) != 0) f |= FlagsRegister.FLAG_H;
+                if (lazyResult < 0) f |= FlagsRegister.FLAG_C;
                 break;
-            case 0xF9:
-                // LD SP,HL F9 8
-                load(registerSP, readCombinedRegisters(registerH, registerL));
-                consumeClockCycles(8);
+            case LAZY_AND:
+                f |= FlagsRegister.FLAG_H;
                 break;
-            case 0xF8:
-                // LDHL SP,n F8 12
-                // Put SP + n effective address into HL. (n is signed here!)
-                temp = mmu.readByte(registerPC.read());
-                if (temp > 127) {
-                    temp = -((~temp + 1) & 255); // 2's complement
-                }
-                registerPC.inc();
-                result = temp + registerSP.read();
-                registerH.write((result >> 8) & 255);
-                registerL.write(result & 255);
-
-                // flags affected
-                registerFlags.clearZ();
-                registerFlags.clearN();
-                if (((registerSP.read() ^ temp ^ result) & 0x100) == 0x100) {
-                    registerFlags.setC();
-                }
-                else {
-                    registerFlags.clearC();
-                }
-                if (((registerSP.read() ^ temp ^ result) & 0x10) == 0x10) {
-                    registerFlags.setH();
-                }
-                else {
-                    registerFlags.clearH();
-                }
-
-                consumeClockCycles(12);
+            case LAZY_INC:
+                if ((lazyResult & 0xF) == 0) f |= FlagsRegister.FLAG_H;
+                if (lazyCarry) f |= FlagsRegister.FLAG_C;
                 break;
-            case 0x08:
-                // LD (nn),SP 08 20 (TWENTY CYCLES)
-                // Put Stack Pointer (SP) at address n.
-                // LD (nn),SP
-                lowerValue = mmu.readByte(registerPC.read());
-                registerPC.inc();
-                upperValue = mmu.readByte(registerPC.read());
-                registerPC.inc();
-                address = ((upperValue << 8) + lowerValue);
-                mmu.writeByte(address, registerSP.readLow());
-                mmu.writeByte(address + 1, (registerSP.readHigh() >> 8));
-                consumeClockCycles(20);
+            case LAZY_DEC:
+                f |= FlagsRegister.FLAG_N;
+                if ((lazyResult & 0xF) == 0xF) f |= FlagsRegister.FLAG_H;
+                if (lazyCarry) f |= FlagsRegister.FLAG_C;
                 break;
-            //</editor-fold>
-            default:
-                log.debug(String.format("log.error: Opcode %05X does not belong to load(int opcode) . ", opcode));
         }
+        return f;
     }
 
-    private void pushHelper(int value) {
-        // Description:
-        //   Push register pair nn onto stack.
-        //   Decrement Stack Pointer (SP) twice.
-        registerSP.dec();
-        mmu.writeByte(registerSP.read(), (value & 0b11111111_00000000) >> 8);
-        registerSP.dec();
-        mmu.writeByte(registerSP.read(), value & 0b00000000_11111111);
+    // 16-bit register pairs
+    private int getAF() {
+        return (registerA << 8) | readFlags();
+    }
+    private void setAF(int value) {
+        registerA = (value >> 8) & 0xFF;
+        writeFlags(value & 0xFF);
+    }
+    int getBC() {
+        return (registerB << 8) | registerC;
+    }
+    private void setBC(int value) {
+        registerB = (value >> 8) & 0xFF;
+        registerC = value & 0xFF;
+    }
+    int getDE() {
+        return (registerD << 8) | registerE;
+    }
+    private void setDE(int value) {
+        registerD = (value >> 8) & 0xFF;
+        registerE = value & 0xFF;
+    }
+    int getHL() {
+        return (registerH << 8) | registerL;
+    }
+    private void setHL(int value) {
+        registerH = (value >> 8) & 0xFF;
+        registerL = value & 0xFF;
     }
-    private int popHelper() {
-        int low = mmu.readByte(registerSP.read());
-        registerSP.inc();
-        int high = mmu.readByte(registerSP.read());
-        registerSP.inc();
-        high <<= 8;
-        return (high | low);
 
+    // opcode implementations
+    //
+    // every instruction group is a small method that decodes its operands from the bits
+    // of the opcode instead of switching over each opcode it handles:
+    //     (opcode >> 3) & 7    destination register, alu operation or bit index
+    //     opcode & 7           source register
+    //     (opcode >> 4) & 3    register pair
+    // keeping these methods small matters. hotspot won't compile anything over 8000 bytes
+    // of bytecode (-XX:HugeMethodLimit), which left the old per-opcode switches running in
+    // the interpreter forever. MethodSizeTest fails the build if that creeps back in.
+
+    //<editor-fold desc=" Operand Decoding " defaultstate="collapsed">
+    // 8-bit operands are numbered B, C, D, E, H, L, (HL), A. index 6 is the one
+    // shared path out to memory.
+    private static final int OPERAND_HL = 6;
+
+    private int readOperand(int index) {
+        switch (index) {
+            case 0: return registerB;
+            case 1: return registerC;
+            case 2: return registerD;
+            case 3: return registerE;
+            case 4: return registerH;
+            case 5: return registerL;
+            case OPERAND_HL: return mmu.readByte(getHL());
+            default: return registerA;
+        }
+    }
+    private void writeOperand(int index, int value) {
+        switch (index) {
+            case 0: registerB = value; break;
+            case 1: registerC = value; break;
+            case 2: registerD = value; break;
+            case 3: registerE = value; break;
+            case 4: registerH = value; break;
+            case 5: registerL = value; break;
+            case OPERAND_HL: mmu.writeByte(getHL(), value); break;
+            default: registerA = value; break;
+        }
+    }
+
+    // register pairs are numbered BC, DE, HL, SP. push and pop use AF in place of SP.
+    private int readPair(int index) {
+        switch (index) {
+            case 0: return getBC();
+            case 1: return getDE();
+            case 2: return getHL();
+            default: return registerSP;
+        }
+    }
+    private void writePair(int index, int value) {
+        switch (index) {
+            case 0: setBC(value); break;
+            case 1: setDE(value); break;
+            case 2: setHL(value); break;
+            default: registerSP = value & 0xFFFF; break;
+        }
+    }
+
+    private int readImmediate() {
+        int value;
+        if (operandsFetched) {
+            // already read by the decode cache, first byte in the low 8 bits
+            value = operands & 0xFF;
+            operands >>>= 8;
+        }
+        else {
+            value = mmu.readByte(registerPC);
+        }
+        registerPC = (registerPC + 1) & 0xFFFF;
+        return value;
     }
-    public void push(int opcode) {
-        // 3.3.2.6 PUSH nn
-        int temp;
-        switch (opcode) {
-            // PUSH AF F5 16
-            // PUSH BC C5 16
-            // PUSH DE D5 16
-            // PUSH HL E5 16
-            case 0xF5:
-                temp = readCombinedRegisters(registerA, registerFlags);
-                break;
-            case 0xC5:
-                temp = readCombinedRegisters(registerB, registerC);
-                break;
-            case 0xD5:
-                temp = readCombinedRegisters(registerD, registerE);
-                break;
-            case 0xE5:
-                temp = readCombinedRegisters(registerH, registerL);
-                break;
-            default:
-                log.debug(String.format("Error: Opcode %05X does not belong to push(int opcode) . ", opcode));
-                return;
+    private int readImmediateWord() {
+        int low = readImmediate(); // least significant byte first
+        int high = readImmediate();
+        return (high << 8) | low;
+    }
+
+    // conditional jumps, calls and returns encode their condition in (opcode >> 3) & 3
+    // as NZ, Z, NC, C.
+    private boolean condition(int opcode) {
+        switch ((opcode >> 3) & 3) {
+            case 0: return !readZ();
+            case 1: return readZ();
+            case 2: return !readC();
+            default: return readC();
         }
+    }
+    //</editor-fold>
 
-        pushHelper(temp);
-        consumeClockCycles(16);
+    //<editor-fold desc=" 8-bit Loads " defaultstate="collapsed">
+    public void ldRegister(int opcode) {
+        /*
+         *   2. LD r1,r2
+         *   Description:
+         *      Put value r2 into r1.
+         *   Use with:
+         *      r1,r2 = A,B,C,D,E,H,L,(HL)
+         *   Opcodes 0x40 - 0x7F, except 0x76 which is HALT.
+         *   4 cycles, or 8 if either side is (HL).
+         */
+        final int destination = (opcode >> 3) & 7;
+        final int source = opcode & 7;
+
+        writeOperand(destination, readOperand(source));
+        consumeClockCycles(destination == OPERAND_HL || source == OPERAND_HL ? 8 : 4);
     }
-    public void pop(int opcode) {
-        // 3.3.2.7 POP nn
-        Register upperRegister;
-        Register lowerRegister;
-        switch (opcode) {
-            // POP AF F1 12
-            // POP BC C1 12
-            // POP DE D1 12
-            // POP HL E1 12
-            case 0xF1:
-                upperRegister = registerA;
-                lowerRegister = registerFlags;
-                break;
-            case 0xC1:
-                upperRegister = registerB;
-                lowerRegister = registerC;
-                break;
-            case 0xD1:
-                upperRegister = registerD;
-                lowerRegister = registerE;
-                break;
-            case 0xE1:
-                upperRegister = registerH;
-                lowerRegister = registerL;
-                break;
-            default:
-                log.debug(String.format("log.error: Opcode %05X does not belong to pop(int opcode) . ", opcode));
-                return;
-        }
+    public void ldImmediate(int opcode) {
+        /*
+         * 3.3.1. 8-Bit Loads
+         *   1. LD nn,n
+         *   Description:
+         *      Put value nn into n.
+         *   Use with:
+         *      nn = B,C,D,E,H,L,BC,DE,HL,SP
+         *      n = 8 bit immediate value
+         *   Opcodes:
+         *      Instruction Parameters Opcode Cycles
+         *      LD             B,n     06      8
+         *      LD             C,n     0E      8
+         *      LD             D,n     16      8
+         *      LD             E,n     1E      8
+         *      LD             H,n     26      8
+         *      LD             L,n     2E      8
+         */
+        // LD A,n is 3E. LD (HL),n is 36 and takes 12 cycles.
+        final int destination = (opcode >> 3) & 7;
 
-        if (upperRegister != null && lowerRegister != null) {
-            // execute instruction
+        writeOperand(destination, readImmediate());
+        consumeClockCycles(destination == OPERAND_HL ? 12 : 8);
+    }
+    public void ldIndirect(int opcode) {
+        /*
+         *  LD A,(BC) 0A 8      LD (BC),A 02 8
+         *  LD A,(DE) 1A 8      LD (DE),A 12 8
+         */
+        final int address = (opcode & 0x10) == 0 ? getBC() : getDE();
 
-            // Description:
-            //   Pop two bytes off stack into register pair nn.
-            //   Increment Stack Pointer (SP) twice
-            writeCombinedRegisters(upperRegister, lowerRegister, popHelper());
-            consumeClockCycles(12);
+        if ((opcode & 0x08) != 0) {
+            registerA = mmu.readByte(address);
         }
         else {
-            // error out
-            log.error("Found call to pop() but either upper or lower register didn't get populated.");
+            mmu.writeByte(address, registerA);
         }
+        consumeClockCycles(8);
     }
-
-    public void add(int opcode) {
-        /*  3.3.3.1 ADD A,n
-            1. ADD A,n
-            Description:
-               Add n to A.
-            Use with:
-               n = A,B,C,D,E,H,L,(HL),#
-            Flags affected:
-               Z - Set if result is zero.
-               N - Reset.
-               H - Set if carry from bit 3.
-               C - Set if carry from bit 7.
-            Opcodes:
-            Instruction Parameters Opcode Cycles
-             ADD        A,A         87      4
-             ADD        A,B         80      4
-             ADD        A,C         81      4
-             ADD        A,D         82      4
-             ADD        A,E         83      4
-             ADD        A,H         84      4
-             ADD        A,L         85      4
-             ADD        A,(HL)      86      8
-             ADD        A,#         C6      8
+    public void ldIncrementDecrement(int opcode) {
+        /*
+         *  LDI (HL),A 22 8     LDI A,(HL) 2A 8
+         *  LDD (HL),A 32 8     LDD A,(HL) 3A 8
+         *  Load A to or from address HL, then increment (LDI) or decrement (LDD) HL.
          */
-        int second;
-        // determine value to add based on opcode
-        switch (opcode) {
-            case 0x87:
-                second = registerA.read();
-                consumeClockCycles(4);
-                break;
-            case 0x80:
-                second = registerB.read();
-                consumeClockCycles(4);
-                break;
-            case 0x81:
-                second = registerC.read();
-                consumeClockCycles(4);
-                break;
-            case 0x82:
-                second = registerD.read();
-                consumeClockCycles(4);
-                break;
-            case 0x83:
-                second = registerE.read();
-                consumeClockCycles(4);
-                break;
-            case 0x84:
-                second = registerH.read();
-                consumeClockCycles(4);
-                break;
-            case 0x85:
-                second = registerL.read();
-                consumeClockCycles(4);
-                break;
-            case 0x86:
-                second = mmu.readByte(readCombinedRegisters(registerH, registerL));
-                consumeClockCycles(8);
-                break;
-            case 0xC6:
-                second = mmu.readByte(registerPC.read());
-                registerPC.inc();
-                consumeClockCycles(8);
-                break;
-            default:
-                log.debug(String.format("log.error: Opcode %05X does not belong to add(int opcode) . ", opcode));
-                return;
-        }
-        // do the addition
-        int oldvalue = registerA.read();
-        int result = oldvalue + second;
+        final int address = getHL();
 
-        // flags affected
-        registerFlags.clearN();
-        if (result > 255) {
-            registerFlags.setC();
-            result &= 0b1111_1111;
+        if ((opcode & 0x08) != 0) {
+            registerA = mmu.readByte(address);
         }
         else {
-            registerFlags.clearC();
+            mmu.writeByte(address, registerA);
         }
-
-        if (result == 0) {
-            registerFlags.setZ();
+        setHL((opcode & 0x10) == 0 ? address + 1 : address - 1);
+        consumeClockCycles(8);
+    }
+    public void ldHigh(int opcode) {
+        /*
+         *  LDH (n),A E0 12     LDH A,(n) F0 12
+         *  LD (C),A  E2 8      LD A,(C)  F2 8
+         *  Load A to or from address $FF00 + n, or $FF00 + register C.
+         */
+        final int address;
+        final int cycles;
+        if ((opcode & 0x02) == 0) {
+            address = 0xFF00 + readImmediate();
+            cycles = 12;
         }
         else {
-            registerFlags.clearZ();
+            address = 0xFF00 + registerC;
+            cycles = 8;
         }
 
-        if (((oldvalue & 0b0000_1111) + (0b0000_1111 & second)) > 0xF) {
-            registerFlags.setH();
+        if ((opcode & 0x10) != 0) {
+            registerA = mmu.readByte(address);
         }
         else {
-            registerFlags.clearH();
+            mmu.writeByte(address, registerA);
         }
-
-        // save result
-        load(registerA, result);
+        consumeClockCycles(cycles);
     }
-    public void adc(int opcode) {
-        /*  3.3.3.2 ADC A,n
-            Description:
-               Add n + Carry flag to A.
-            Use with:
-               n = A,B,C,D,E,H,L,(HL),#
-            Flags affected:
-               Z - Set if result is zero.
-               N - Reset.
-               H - Set if carry from bit 3.
-               C - Set if carry from bit 7.
-            Opcodes:
-            Instruction Parameters Opcode Cycles
-              ADC         A,A        8F     4
-              ADC         A,B        88     4
-              ADC         A,C        89     4
-              ADC         A,D        8A     4
-              ADC         A,E        8B     4
-              ADC         A,H        8C     4
-              ADC         A,L        8D     4
-              ADC         A,(HL)     8E     8
-              ADC         A,#        CE     8
+    public void ldAbsolute(int opcode) {
+        /*
+         *  LD A,(nn) FA 16     LD (nn),A EA 16
+         *  nn = two byte immediate value. (LS byte first.)
          */
-        int second;
-        switch (opcode) {
-            case 0x8F:
-                second = registerA.read();
-                consumeClockCycles(4);
-                break;
-            case 0x88:
-                second = registerB.read();
-                consumeClockCycles(4);
-                break;
-            case 0x89:
-                second = registerC.read();
-                consumeClockCycles(4);
-                break;
-            case 0x8A:
-                second = registerD.read();
-                consumeClockCycles(4);
-                break;
-            case 0x8B:
-                second = registerE.read();
-                consumeClockCycles(4);
-                break;
-            case 0x8C:
-                second = registerH.read();
-                consumeClockCycles(4);
-                break;
-            case 0x8D:
-                second = registerL.read();
-                consumeClockCycles(4);
-                break;
-            case 0x8E:
-                second = mmu.readByte(readCombinedRegisters(registerH, registerL));
-                consumeClockCycles(8);
-                break;
-            case 0xCE:
-                second = mmu.readByte(registerPC.read());
-                registerPC.inc();
-                consumeClockCycles(8);
-                break;
-            default:
-                log.error(String.format("Opcode %05X does not belong to adc(int opcode) . ", opcode));
-                return;
-        }
+        final int address = readImmediateWord();
 
-        // do the addition
-        int oldvalue = registerA.read();
-        int result = oldvalue + second;
-        result += registerFlags.readC() ? 1 : 0;
-
-        // flags affected
-        registerFlags.clearN();
-        if (result > 255) {
-            registerFlags.setC();
-            result &= 0b1111_1111;
+        if ((opcode & 0x10) != 0) {
+            registerA = mmu.readByte(address);
         }
         else {
-            registerFlags.clearC();
+            mmu.writeByte(address, registerA);
         }
+        consumeClockCycles(16);
+    }
+    //</editor-fold>
+
+    //<editor-fold desc=" 16-bit Loads " defaultstate="collapsed">
+    public void ldPairImmediate(int opcode) {
+        // LD BC,nn 01 12
+        // LD DE,nn 11 12
+        // LD HL,nn 21 12
+        // LD SP,nn 31 12
+        writePair((opcode >> 4) & 3, readImmediateWord());
+        consumeClockCycles(12);
+    }
+    public void ldSpHl(int opcode) {
+        // LD SP,HL F9 8
+        registerSP = getHL();
+        consumeClockCycles(8);
+    }
+    public void ldHlSpOffset(int opcode) {
+        // LDHL SP,n F8 12
+        // Put SP + n effective address into HL. (n is signed here!)
+        final int offset = (byte) readImmediate();
+        final int result = registerSP + offset;
+        setHL(result);
 
-        if (result == 0) {
-            registerFlags.setZ();
+        // flags affected. Z and N are reset, H and C come from the low byte addition.
+        final int carries = registerSP ^ offset ^ result;
+        int flags = 0;
+        if ((carries & 0x10) != 0) {
+            flags |= FlagsRegister.FLAG_H;
         }
-        else {
-            registerFlags.clearZ();
+        if ((carries & 0x100) != 0) {
+            flags |= FlagsRegister.FLAG_C;
         }
+        writeFlags(flags);
 
-        if (((registerA.read() ^ second ^ result) & 0x10) != 0) {
-            registerFlags.setH();
+        consumeClockCycles(12);
+    }
+    public void ldAbsoluteSp(int opcode) {
+        // LD (nn),SP 08 20 (TWENTY CYCLES)
+        // Put Stack Pointer (SP) at address n.
+        final int address = readImmediateWord();
+        mmu.writeByte(address, registerSP & 0xFF);
+        mmu.writeByte(address + 1, registerSP >> 8);
+        consumeClockCycles(20);
+    }
+
+    private void pushHelper(int value) {
+        // Description:
+        //   Push register pair nn onto stack.
+        //   Decrement Stack Pointer (SP) twice.
+        registerSP = (registerSP - 1) & 0xFFFF;
+        mmu.writeByte(registerSP, (value & 0b11111111_00000000) >> 8);
+        registerSP = (registerSP - 1) & 0xFFFF;
+        mmu.writeByte(registerSP, value & 0b00000000_11111111);
+    }
+    private int popHelper() {
+        int low = mmu.readByte(registerSP);
+        registerSP = (registerSP + 1) & 0xFFFF;
+        int high = mmu.readByte(registerSP);
+        registerSP = (registerSP + 1) & 0xFFFF;
+        high <<= 8;
+        return (high | low);
+
+    }
+    public void push(int opcode) {
+        // 3.3.2.6 PUSH nn
+        // PUSH BC C5 16
+        // PUSH DE D5 16
+        // PUSH HL E5 16
+        // PUSH AF F5 16
+        final int pair = (opcode >> 4) & 3;
+        pushHelper(pair == 3 ? getAF() : readPair(pair));
+        consumeClockCycles(16);
+    }
+    public void pop(int opcode) {
+        // 3.3.2.7 POP nn
+        // Description:
+        //   Pop two bytes off stack into register pair nn.
+        //   Increment Stack Pointer (SP) twice
+        // POP BC C1 12
+        // POP DE D1 12
+        // POP HL E1 12
+        // POP AF F1 12
+        final int pair = (opcode >> 4) & 3;
+        final int value = popHelper();
+        if (pair == 3) {
+            setAF(value);
         }
         else {
-            registerFlags.clearH();
+            writePair(pair, value);
         }
+        consumeClockCycles(12);
+    }
+    //</editor-fold>
 
-        // save result
-        load(registerA, result);
+    //<editor-fold desc=" 8-bit ALU " defaultstate="collapsed">
+    private int aluOperand(int opcode) {
+        // 0x80 - 0xBF take their operand from opcode & 7, the 0xC6 - 0xFE column
+        // from an immediate byte.
+        if ((opcode & 0xC0) == 0xC0) {
+            final int value = readImmediate();
+            consumeClockCycles(8);
+            return value;
+        }
+
+        final int source = opcode & 7;
+        final int value = readOperand(source);
+        consumeClockCycles(source == OPERAND_HL ? 8 : 4);
+        return value;
     }
-    public void add16(int opcode) {
-        /*  3.3.4.1. ADD HL,n
+    public void add(int opcode) {
+        /*  3.3.3.1 ADD A,n
+            1. ADD A,n
             Description:
-               Add n to HL.
+               Add n to A.
             Use with:
-               n = BC,DE,HL,SP
+               n = A,B,C,D,E,H,L,(HL),#
             Flags affected:
-               Z - Not affected.
+               Z - Set if result is zero.
                N - Reset.
-               H - Set if carry from bit 11.
-               C - Set if carry from bit 15.
+               H - Set if carry from bit 3.
+               C - Set if carry from bit 7.
             Opcodes:
             Instruction Parameters Opcode Cycles
-             ADD         HL,BC      09      8
-             ADD         HL,DE      19      8
-             ADD         HL,HL      29      8
-             ADD         HL,SP      39      8
+             ADD        A,A         87      4
+             ADD        A,B         80      4
+             ADD        A,C         81      4
+             ADD        A,D         82      4
+             ADD        A,E         83      4
+             ADD        A,H         84      4
+             ADD        A,L         85      4
+             ADD        A,(HL)      86      8
+             ADD        A,#         C6      8
+         */
+        final int second = aluOperand(opcode);
+        final int result = registerA + second;
 
-             Flags affected:
-               Z - Reset.
+        // flags affected, worked out later from the operands if anything reads them
+        setLazy(LAZY_ADD, registerA, second, result);
+        registerA = result & 0xFF;
+    }
+    public void adc(int opcode) {
+        /*  3.3.3.2 ADC A,n
+            Description:
+               Add n + Carry flag to A.
+            Use with:
+               n = A,B,C,D,E,H,L,(HL),#
+            Flags affected:
+               Z - Set if result is zero.
                N - Reset.
-               H - Set or reset according to operation.
-               C - Set or reset according to operation.
-             ADD         SP,#       E8      16
-        */
-        int value;
-        int result;
-        int hl;
-        Register destReg = null;
-        switch (opcode) {
-            case 0x09:
-                value = readCombinedRegisters(registerB, registerC);
-                consumeClockCycles(8);
-                break;
-            case 0x19:
-                value = readCombinedRegisters(registerD, registerE);
-                consumeClockCycles(8);
-                break;
-            case 0x29:
-                value = readCombinedRegisters(registerH, registerL);
-                consumeClockCycles(8);
-                break;
-            case 0x39:
-                value = registerSP.read();
-                consumeClockCycles(8);
-                break;
-            case 0xE8:
-                value = mmu.readByte(registerPC.read());
-                registerPC.inc();
-                if (value > 127) {
-                    value = -((~value + 1) & 255); // 2's complement
-                }
-                consumeClockCycles(16);
-                break;
-            default:
-                log.debug(String.format("log.error: Opcode %05X does not belong to add16(int opcode) . ", opcode));
-                return;
-
-        }
-
-        // do the add
-        hl = readCombinedRegisters(registerH, registerL);
-
-        if (opcode == 0xE8) {
-            result = value + registerSP.read();
-
-            // flags affected
-            registerFlags.clearZ();
-            registerFlags.clearN();
-
-            int resultXor = registerSP.read() ^ value ^ result;
-
-            if ((resultXor & 0x10) != 0) {
-                registerFlags.setH();
-            }
-            else {
-                registerFlags.clearH();
-            }
-            if ((resultXor & 0x100) != 0) {
-                registerFlags.setC();
-            }
-            else {
-                registerFlags.clearC();
-            }
-
-            // save result
-            result &= 0xFFFF;
-            registerSP.write(result);
-        }
-        else {
-            result = hl + value;
-
-            // flags affected
-            registerFlags.clearN();
-            if ((((hl & 0x0FFF) + (value & 0x0FFF)) & 0x1000) != 0) {
-                registerFlags.setH();
-            }
-            else {
-                registerFlags.clearH();
-            }
-            if (result > 0xFFFF) {
-                registerFlags.setC();
-                result &= 0b11111111_11111111;
-            }
-            else {
-                registerFlags.clearC();
-            }
+               H - Set if carry from bit 3.
+               C - Set if carry from bit 7.
+            Opcodes:
+            Instruction Parameters Opcode Cycles
+              ADC         A,A        8F     4
+              ADC         A,B        88     4
+              ADC         A,C        89     4
+              ADC         A,D        8A     4
+              ADC         A,E        8B     4
+              ADC         A,H        8C     4
+              ADC         A,L        8D     4
+              ADC         A,(HL)     8E     8
+              ADC         A,#        CE     8
+         */
+        final int second = aluOperand(opcode);
+        final int result = registerA + second + (readC() ? 1 : 0);
 
-            // save result
-            writeCombinedRegisters(registerH, registerL, result);
-        }
+        // flags affected, worked out later from the operands if anything reads them
+        setLazy(LAZY_ADD, registerA, second, result);
+        registerA = result & 0xFF;
     }
-
     public void sub(int opcode) {
         /* 3.3.3.3 SUB n
             Description:
@@ -1534,84 +1144,12 @@ public class Cpu {
              SUB          (HL)       96     8
              SUB          #          D6     8
          */
-        int second;
-        int oldValue = registerA.read();
-        switch (opcode) {
-            case 0x97:
-                second = registerA.read();
-                consumeClockCycles(4);
-                break;
-            case 0x90:
-                second = registerB.read();
-                consumeClockCycles(4);
-                break;
-            case 0x91:
-                second = registerC.read();
-                consumeClockCycles(4);
-                break;
-            case 0x92:
-                second = registerD.read();
-                consumeClockCycles(4);
-                break;
-            case 0x93:
-                second = registerE.read();
-                consumeClockCycles(4);
-                break;
-            case 0x94:
-                second = registerH.read();
-                consumeClockCycles(4);
-                break;
-            case 0x95:
-                second = registerL.read();
-                consumeClockCycles(4);
-                break;
-            case 0x96:
-                second = mmu.readByte(readCombinedRegisters(registerH, registerL));
-                consumeClockCycles(8);
-                break;
-            case 0xD6:
-                second = mmu.readByte(registerPC.read());
-                registerPC.inc();
-                consumeClockCycles(8);
-                break;
-            default:
-                log.debug(String.format("log.error: Opcode %05X does not belong to sub(int opcode) . ", opcode));
-                return;
-        }
-
-        // do the subtraction
-        int result = registerA.read() - second;
-
-        // flags affected
-        registerFlags.setN();
-        if ((result & 255) == 0) {
-            registerFlags.setZ();
-        }
-        else {
-            registerFlags.clearZ();
-        }
-
-        if (second > registerA.read()) {
-            registerFlags.setC();
-        }
-        else {
-            registerFlags.clearC();
-        }
-
-        if (((registerA.read() ^ second ^ result) & 0x10) != 0) {
-            registerFlags.setH();
-        }
-        else {
-            registerFlags.clearH();
-        }
-
-        // account for overflow
-        if (result > 255 || result < 0) {
-            result &= 255;
-        }
+        final int second = aluOperand(opcode);
+        final int result = registerA - second;
 
-        // save result
-        load(registerA, result);
+        // flags affected, worked out later from the operands if anything reads them
+        setLazy(LAZY_SUB, registerA, second, result);
+        registerA = result & 0xFF;
     }
     public void sbc(int opcode) {
         /* 3.3.3.4 SBC A,n
@@ -1636,87 +1174,13 @@ public class Cpu {
              SBC          A,(HL)     9E     8
              SBC          A,#        ??     ?
          */
-        final int second;
-        switch (opcode) {
-            case 0x9F:
-                second = registerA.read();
-                consumeClockCycles(4);
-                break;
-            case 0x98:
-                second = registerB.read();
-                consumeClockCycles(4);
-                break;
-            case 0x99:
-                second = registerC.read();
-                consumeClockCycles(4);
-                break;
-            case 0x9A:
-                second = registerD.read();
-                consumeClockCycles(4);
-                break;
-            case 0x9B:
-                second = registerE.read();
-                consumeClockCycles(4);
-                break;
-            case 0x9C:
-                second = registerH.read();
-                consumeClockCycles(4);
-                break;
-            case 0x9D:
-                second = registerL.read();
-                consumeClockCycles(4);
-                break;
-            case 0x9E:
-                second = mmu.readByte(readCombinedRegisters(registerH, registerL));
-                consumeClockCycles(8);
-                break;
-            case 0xDE:
-                second = mmu.readByte(registerPC.read());
-                registerPC.inc();
-                consumeClockCycles(8);
-                break;
-            default:
-                log.debug(String.format("log.error: Opcode %05X does not belong to sbc(int opcode) . ", opcode));
-                return;
-        }
-
-        // do the subtraction
-        int result = registerA.read() - second;
-        result -= (registerFlags.readC() ? 1 : 0);
-
-        // flags affected
-        registerFlags.setN();
-
-        if ((result & 255) == 0) {
-            registerFlags.setZ();
-        }
-        else {
-            registerFlags.clearZ();
-        }
-
-        if ((result & 0x100) != 0) {
-            registerFlags.setC();
-        }
-        else {
-            registerFlags.clearC();
-        }
+        final int second = aluOperand(opcode);
+        final int result = registerA - second - (readC() ? 1 : 0);
 
-        if (((registerA.read() ^ second ^ result) & 0x10) != 0) {
-            registerFlags.setH();
-        }
-        else {
-            registerFlags.clearH();
-        }
-
-        // account for overflow
-        if (result > 255 || result < 0) {
-            result &= 255;
-        }
-
-        // save result
-        load(registerA, result);
+        // flags affected, worked out later from the operands if anything reads them
+        setLazy(LAZY_SUB, registerA, second, result);
+        registerA = result & 0xFF;
     }
-
     public void and(int opcode) {
         /* 3.3.3.5 AND n
             Description:
@@ -1740,144 +1204,9 @@ public class Cpu {
              AND            (HL)     A6     8
              AND            #        E6     8
          */
-        int second;
-        switch (opcode) {
-            case 0xA7:
-                second = registerA.read();
-                consumeClockCycles(4);
-                break;
-            case 0xA0:
-                second = registerB.read();
-                consumeClockCycles(4);
-                break;
-            case 0xA1:
-                second = registerC.read();
-                consumeClockCycles(4);
-                break;
-            case 0xA2:
-                second = registerD.read();
-                consumeClockCycles(4);
-                break;
-            case 0xA3:
-                second = registerE.read();
-                consumeClockCycles(4);
-                break;
-            case 0xA4:
-                second = registerH.read();
-                consumeClockCycles(4);
-                break;
-            case 0xA5:
-                second = registerL.read();
-                consumeClockCycles(4);
-                break;
-            case 0xA6:
-                second = mmu.readByte(readCombinedRegisters(registerH, registerL));
-                consumeClockCycles(8);
-                break;
-            case 0xE6:
-                second = mmu.readByte(registerPC.read());
-                registerPC.inc();
-                consumeClockCycles(8);
-                break;
-            default:
-                log.debug(String.format("log.error: Opcode %05X does not belong to and(int opcode) . ", opcode));
-                return;
-        }
-
-        // do the and
-        load(registerA, registerA.read() & second);
-
-        // flags affected
-        if (registerA.read() == 0) {
-            registerFlags.setZ();
-        }
-        else {
-            registerFlags.clearZ();
-        }
-        registerFlags.clearN();
-        registerFlags.setH();
-        registerFlags.clearC();
-    }
-    public void or(int opcode) {
-        /* 3.3.3.6. OR n
-            Description:
-               log.logDebugical OR n with register A, result in A.
-            Use with:
-               n = A,B,C,D,E,H,L,(HL),#
-            Flags affected:
-               Z - Set if result is zero.
-               N - Reset.
-               H - Reset.
-               C - Reset.
-            Opcodes:
-            Instruction Parameters Opcode Cycles
-             OR             A        B7     4
-             OR             B        B0     4
-             OR             C        B1     4
-             OR             D        B2     4
-             OR             E        B3     4
-             OR             H        B4     4
-             OR             L        B5     4
-             OR             (HL)     B6     8
-             OR             #        F6     8
-        */
-        int second;
-        switch (opcode) {
-            case 0xB7:
-                second = registerA.read();
-                consumeClockCycles(4);
-                break;
-            case 0xB0:
-                second = registerB.read();
-                consumeClockCycles(4);
-                break;
-            case 0xB1:
-                second = registerC.read();
-                consumeClockCycles(4);
-                break;
-            case 0xB2:
-                second = registerD.read();
-                consumeClockCycles(4);
-                break;
-            case 0xB3:
-                second = registerE.read();
-                consumeClockCycles(4);
-                break;
-            case 0xB4:
-                second = registerH.read();
-                consumeClockCycles(4);
-                break;
-            case 0xB5:
-                second = registerL.read();
-                consumeClockCycles(4);
-                break;
-            case 0xB6:
-                second = mmu.readByte(readCombinedRegisters(registerH, registerL));
-                consumeClockCycles(8);
-                break;
-            case 0xF6:
-                second = mmu.readByte(registerPC.read());
-                registerPC.inc();
-                consumeClockCycles(8);
-                break;
-            default:
-                log.debug(String.format("log.error: Opcode %05X does not belong to or(int opcode) . ", opcode));
-                return;
-        }
-
-        // do the or
-        load(registerA, registerA.read() | second);
-
-        // flags affected
-        if (registerA.read() == 0) {
-            registerFlags.setZ();
-        }
-        else {
-            registerFlags.clearZ();
-        }
-        registerFlags.clearN();
-        registerFlags.clearH();
-        registerFlags.clearC();
+        final int second = aluOperand(opcode);
+        registerA &= second;
+        setLazy(LAZY_AND, registerA, second, registerA);
     }
     public void xor(int opcode) {
         /* 3.3.3.7 XOR n
@@ -1902,66 +1231,36 @@ public class Cpu {
              XOR            (HL)    AE      8
              XOR            *       EE      8
         */
-        int second;
-        switch (opcode) {
-            case 0xAF:
-                second = registerA.read();
-                consumeClockCycles(4);
-                break;
-            case 0xA8:
-                second = registerB.read();
-                consumeClockCycles(4);
-                break;
-            case 0xA9:
-                second = registerC.read();
-                consumeClockCycles(4);
-                break;
-            case 0xAA:
-                second = registerD.read();
-                consumeClockCycles(4);
-                break;
-            case 0xAB:
-                second = registerE.read();
-                consumeClockCycles(4);
-                break;
-            case 0xAC:
-                second = registerH.read();
-                consumeClockCycles(4);
-                break;
-            case 0xAD:
-                second = registerL.read();
-                consumeClockCycles(4);
-                break;
-            case 0xAE:
-                second = mmu.readByte(readCombinedRegisters(registerH, registerL));
-                consumeClockCycles(8);
-                break;
-            case 0xEE:
-                second = mmu.readByte(registerPC.read());
-                registerPC.inc();
-
-                //log.fatal(String.format("PC: 0x%04X    A: 0x%02X    OPERAND: " + second + " d    RESULT: 0x%02X    F: 0x%02X", registerPC.read(), registerA.read(), registerA.read() ^ second, registerFlags.read()));
-
-                consumeClockCycles(8);
-                break;
-            default:
-                log.debug(String.format("log.error: Opcode %05X does not belong to xor(int opcode) . ", opcode));
-                return;
-        }
-
-        // do the xor
-        load(registerA, registerA.read() ^ second);
-
-        // flags affected
-        if (registerA.read() == 0) {
-            registerFlags.setZ();
-        }
-        else {
-            registerFlags.clearZ();
-        }
-        registerFlags.clearN();
-        registerFlags.clearH();
-        registerFlags.clearC();
+        final int second = aluOperand(opcode);
+        registerA ^= second;
+        setLazy(LAZY_OR, registerA, second, registerA);
+    }
+    public void or(int opcode) {
+        /* 3.3.3.6. OR n
+            Description:
+               log.logDebugical OR n with register A, result in A.
+            Use with:
+               n = A,B,C,D,E,H,L,(HL),#
+            Flags affected:
+               Z - Set if result is zero.
+               N - Reset.
+               H - Reset.
+               C - Reset.
+            Opcodes:
+            Instruction Parameters Opcode Cycles
+             OR             A        B7     4
+             OR             B        B0     4
+             OR             C        B1     4
+             OR             D        B2     4
+             OR             E        B3     4
+             OR             H        B4     4
+             OR             L        B5     4
+             OR             (HL)     B6     8
+             OR             #        F6     8
+        */
+        final int second = aluOperand(opcode);
+        registerA |= second;
+        setLazy(LAZY_OR, registerA, second, registerA);
     }
     public void cp(int opcode) {
         /* 3.3.3.8. CP n
@@ -1988,79 +1287,11 @@ public class Cpu {
                 CP          (HL)    BE      8
                 CP          #       FE      8
          */
-        int second;
-        switch (opcode) {
-            case 0xBF:
-                second = registerA.read();
-                consumeClockCycles(4);
-                break;
-            case 0xB8:
-                second = registerB.read();
-                consumeClockCycles(4);
-                break;
-            case 0xB9:
-                second = registerC.read();
-                consumeClockCycles(4);
-                break;
-            case 0xBA:
-                second = registerD.read();
-                consumeClockCycles(4);
-                break;
-            case 0xBB:
-                second = registerE.read();
-                consumeClockCycles(4);
-                break;
-            case 0xBC:
-                second = registerH.read();
-                consumeClockCycles(4);
-                break;
-            case 0xBD:
-                second = registerL.read();
-                consumeClockCycles(4);
-                break;
-            case 0xBE:
-                second = mmu.readByte(readCombinedRegisters(registerH, registerL));
-                consumeClockCycles(8);
-                break;
-            case 0xFE:
-                second = mmu.readByte(registerPC.read());
-                registerPC.inc();
-                consumeClockCycles(8);
-                break;
-            default:
-                log.debug(String.format("log.error: Opcode %05X does not belong to cp(int opcode) . ", opcode));
-                return;
-        }
-
-        // do the subtraction
-        int result = registerA.read() - second;
-
-        // flags affected
-        registerFlags.setN();
-        if (result == 0) {
-            registerFlags.setZ();
-        }
-        else {
-            registerFlags.clearZ();
-        }
-
-        if (second > registerA.read()) {
-            registerFlags.setC();
-        }
-        else {
-            registerFlags.clearC();
-        }
+        final int second = aluOperand(opcode);
 
-        if ((registerA.read() & 0b0000_1111) < (0b0000_1111 & second)) {
-            registerFlags.setH();
-        }
-        else {
-            registerFlags.clearH();
-        }
-
-        // throw away result :-)
+        // flags as for sub, the result itself is thrown away :-)
+        setLazy(LAZY_SUB, registerA, second, registerA - second);
     }
-
     public void inc(int opcode) {
         /* 3.3.3.9. INC n
             Description:
@@ -2083,116 +1314,14 @@ public class Cpu {
              INC            L       2C      4
              INC            (HL)    34      12
         */
-        final int value;
-        switch (opcode) {
-            case 0x3C:
-                registerA.inc();
-                value = registerA.read();
-                consumeClockCycles(4);
-                break;
-            case 0x04:
-                registerB.inc();
-                value = registerB.read();
-                consumeClockCycles(4);
-                break;
-            case 0x0C:
-                registerC.inc();
-                value = registerC.read();
-                consumeClockCycles(4);
-                break;
-            case 0x14:
-                registerD.inc();
-                value = registerD.read();
-                consumeClockCycles(4);
-                break;
-            case 0x1C:
-                registerE.inc();
-                value = registerE.read();
-                consumeClockCycles(4);
-                break;
-            case 0x24:
-                registerH.inc();
-                value = registerH.read();
-                consumeClockCycles(4);
-                break;
-            case 0x2C:
-                registerL.inc();
-                value = registerL.read();
-                consumeClockCycles(4);
-                break;
-            case 0x34:
-                final int address = readCombinedRegisters(registerH, registerL);
-                value = mmu.readByte(address) + 1;
-                mmu.writeByte(address, (value & 255));
-                consumeClockCycles(12);
-                break;
-            default:
-                log.debug(String.format("log.error: Opcode %05X does not belong to inc(int opcode) . ", opcode));
-                return;
-        }
-
-        // flags affected
-        if ((value & 255) == 0) {
-            registerFlags.setZ();
-        }
-        else {
-            registerFlags.clearZ();
-        }
-
-        registerFlags.clearN();
-
-        if ((((value - 1) & 0b0000_1111) + (0b0000_1111 & 1)) > 0xF) {
-            registerFlags.setH();
-        }
-        else {
-            registerFlags.clearH();
-        }
+        final int index = (opcode >> 3) & 7;
+        final int value = readOperand(index) + 1;
+        writeOperand(index, value & 0xFF);
+        consumeClockCycles(index == OPERAND_HL ? 12 : 4);
 
+        // flags affected, carry is left alone
+        setLazy(LAZY_INC, value - 1, 1, value);
     }
-    public void inc16(int opcode) {
-        /* 3.3.4.3. INC nn
-            Description:
-               Increment register nn.
-            Use with:
-               nn = BC,DE,HL,SP
-            Flags affected:
-               None.
-            Opcodes:
-            Instruction Parameters Opcode Cycles
-             INC            BC      03      8
-             INC            DE      13      8
-             INC            HL      23      8
-             INC            SP      33      8
-        */
-        int value;
-        Register highReg = null;
-        Register lowReg = null;
-        switch (opcode) {
-            case 0x03:
-                highReg = registerB;
-                lowReg = registerC;
-                break;
-            case 0x13:
-                highReg = registerD;
-                lowReg = registerE;
-                break;
-            case 0x23:
-                highReg = registerH;
-                lowReg = registerL;
-                break;
-            case 0x33:
-                registerSP.inc();
-                return;
-            default:
-                log.error(String.format("Opcode %05X does not belong to inc16(int opcode) . ", opcode));
-                return;
-        }
-        value = readCombinedRegisters(highReg, lowReg);
-        value += 1;
-        writeCombinedRegisters(highReg, lowReg, value);
-        consumeClockCycles(8);
-    }
-
     public void dec(int opcode) {
         /* 3.3.3.10. DEC n
             Description:
@@ -2215,217 +1344,127 @@ public class Cpu {
                DEC          L       2D      4
                DEC          (HL)    35      12
          */
-        int value, oldValue;
-        switch (opcode) {
-            case 0x3D:
-                oldValue = registerA.read();
-                registerA.dec();
-                value = registerA.read();
-                consumeClockCycles(4);
-                break;
-            case 0x05:
-                oldValue = registerB.read();
-                registerB.dec();
-                value = registerB.read();
-                consumeClockCycles(4);
-                break;
-            case 0x0D:
-                oldValue = registerC.read();
-                registerC.dec();
-                value = registerC.read();
-                consumeClockCycles(4);
-                break;
-            case 0x15:
-                oldValue = registerD.read();
-                registerD.dec();
-                value = registerD.read();
-                consumeClockCycles(4);
-                break;
-            case 0x1D:
-                oldValue = registerE.read();
-                registerE.dec();
-                value = registerE.read();
-                consumeClockCycles(4);
-                break;
-            case 0x25:
-                oldValue = registerH.read();
-                registerH.dec();
-                value = registerH.read();
-                consumeClockCycles(4);
-                break;
-            case 0x2D:
-                oldValue = registerL.read();
-                registerL.dec();
-                value = registerL.read();
-                consumeClockCycles(4);
-                break;
-            case 0x35:
-                int address = readCombinedRegisters(registerH, registerL);
-                value = mmu.readByte(address);
-                oldValue = value;
-                value -= 1;
-                value &= 255;
-                mmu.writeByte(address, value);
-                consumeClockCycles(12);
-                break;
-            default:
-                log.debug(String.format("log.error: Opcode %05X does not belong to dec(int opcode) . ", opcode));
-                return;
-        }
+        final int index = (opcode >> 3) & 7;
+        final int oldValue = readOperand(index);
+        final int value = (oldValue - 1) & 0xFF;
+        writeOperand(index, value);
+        consumeClockCycles(index == OPERAND_HL ? 12 : 4);
+
+        // flags affected, carry is left alone
+        setLazy(LAZY_DEC, oldValue, 1, value);
+    }
+    //</editor-fold>
+
+    //<editor-fold desc=" 16-bit Arithmetic " defaultstate="collapsed">
+    public void add16(int opcode) {
+        /*  3.3.4.1. ADD HL,n
+            Description:
+               Add n to HL.
+            Use with:
+               n = BC,DE,HL,SP
+            Flags affected:
+               Z - Not affected.
+               N - Reset.
+               H - Set if carry from bit 11.
+               C - Set if carry from bit 15.
+            Opcodes:
+            Instruction Parameters Opcode Cycles
+             ADD         HL,BC      09      8
+             ADD         HL,DE      19      8
+             ADD         HL,HL      29      8
+             ADD         HL,SP      39      8
 
-        // flags affected
-        if (value == 0) {
-            registerFlags.setZ();
+             Flags affected:
+               Z - Reset.
+               N - Reset.
+               H - Set or reset according to operation.
+               C - Set or reset according to operation.
+             ADD         SP,#       E8      16
+        */
+        final int value = readPair((opcode >> 4) & 3);
+        consumeClockCycles(8);
+
+        final int hl = getHL();
+        final int result = hl + value;
+
+        // flags affected. Z is left alone, N is reset.
+        int flags = readZ() ? FlagsRegister.FLAG_Z : 0;
+        if ((((hl & 0x0FFF) + (value & 0x0FFF)) & 0x1000) != 0) {
+            flags |= FlagsRegister.FLAG_H;
         }
-        else {
-            registerFlags.clearZ();
+        if (result > 0xFFFF) {
+            flags |= FlagsRegister.FLAG_C;
         }
+        writeFlags(flags);
 
-        registerFlags.setN();
+        setHL(result);
+    }
+    public void addSp(int opcode) {
+        // ADD SP,# E8 16
+        // Flags affected:
+        //   Z - Reset.
+        //   N - Reset.
+        //   H - Set or reset according to operation.
+        //   C - Set or reset according to operation.
+        final int offset = (byte) readImmediate();
+        consumeClockCycles(16);
 
-        if ((oldValue & 0b0000_1111) < 1) {
-            registerFlags.setH();
+        final int result = registerSP + offset;
+        final int carries = registerSP ^ offset ^ result;
+        int flags = 0;
+        if ((carries & 0x10) != 0) {
+            flags |= FlagsRegister.FLAG_H;
         }
-        else {
-            registerFlags.clearH();
+        if ((carries & 0x100) != 0) {
+            flags |= FlagsRegister.FLAG_C;
         }
+        writeFlags(flags);
+
+        registerSP = result & 0xFFFF;
     }
-    public void dec16(int opcode) {
-        /* 3.3.4.4. DEC nn
+    public void inc16(int opcode) {
+        /* 3.3.4.3. INC nn
             Description:
-               Decrement register nn.
+               Increment register nn.
             Use with:
                nn = BC,DE,HL,SP
             Flags affected:
                None.
             Opcodes:
             Instruction Parameters Opcode Cycles
-             DEC            BC      0B      8
-             DEC            DE      1B      8
-             DEC            HL      2B      8
-             DEC            SP      3B      8
+             INC            BC      03      8
+             INC            DE      13      8
+             INC            HL      23      8
+             INC            SP      33      8
         */
-        int value;
-        Register highReg = null;
-        Register lowReg = null;
-        switch (opcode) {
-            case 0x0B:
-                highReg = registerB;
-                lowReg = registerC;
-                break;
-            case 0x1B:
-                highReg = registerD;
-                lowReg = registerE;
-                break;
-            case 0x2B:
-                highReg = registerH;
-                lowReg = registerL;
-                break;
-            case 0x3B:
-                registerSP.dec();
-                return;
-            default:
-                log.debug(String.format("error: Opcode %04X does not belong to dec16(int opcode) . ", opcode));
-                return;
-        }
-        value = readCombinedRegisters(highReg, lowReg);
-        value -= 1;
-        writeCombinedRegisters(highReg, lowReg, value);
-        consumeClockCycles(8);
-    }
+        final int pair = (opcode >> 4) & 3;
+        writePair(pair, readPair(pair) + 1);
 
-    private int swapHelper(int value) {
-        int upper = value & 0b1111_0000;
-        int lower = value & 0b0000_1111;
-        lower <<= 4;
-        upper >>= 4;
-        value = 0;
-        value |= upper;
-        value |= lower;
-        return value;
+        consumeClockCycles(8);
     }
-    public void swap(int opcode) {
-        /* 3.3.5.1. SWAP n
+    public void dec16(int opcode) {
+        /* 3.3.4.4. DEC nn
             Description:
-               Swap upper & lower nibles of n.
+               Decrement register nn.
             Use with:
-               n = A,B,C,D,E,H,L,(HL)
+               nn = BC,DE,HL,SP
             Flags affected:
-               Z - Set if result is zero.
-               N - Reset.
-               H - Reset.
-               C - Reset.
+               None.
             Opcodes:
             Instruction Parameters Opcode Cycles
-               SWAP         A       CB 37   8
-               SWAP         B       CB 30   8
-               SWAP         C       CB 31   8
-               SWAP         D       CB 32   8
-               SWAP         E       CB 33   8
-               SWAP         H       CB 34   8
-               SWAP         L       CB 35   8
-               SWAP         (HL)    CB 36   16
-         */
-        int value;
-        switch (opcode) {
-            case 0xCB37:
-                value = swapHelper(registerA.read());
-                registerA.write(value);
-                consumeClockCycles(8);
-                break;
-            case 0xCB30:
-                value = swapHelper(registerB.read());
-                registerB.write(value);
-                consumeClockCycles(8);
-                break;
-            case 0xCB31:
-                value = swapHelper(registerC.read());
-                registerC.write(value);
-                consumeClockCycles(8);
-                break;
-            case 0xCB32:
-                value = swapHelper(registerD.read());
-                registerD.write(value);
-                consumeClockCycles(8);
-                break;
-            case 0xCB33:
-                value = swapHelper(registerE.read());
-                registerE.write(value);
-                consumeClockCycles(8);
-                break;
-            case 0xCB34:
-                value = swapHelper(registerH.read());
-                registerH.write(value);
-                consumeClockCycles(8);
-                break;
-            case 0xCB35:
-                value = swapHelper(registerL.read());
-                registerL.write(value);
-                consumeClockCycles(8);
-                break;
-            case 0xCB36:
-                int address = readCombinedRegisters(registerH, registerL);
-                value = swapHelper(mmu.readByte(address));
-                mmu.writeByte(address, value);
-                consumeClockCycles(16);
-                break;
-            default:
-                log.debug(String.format("log.error: Opcode %05X does not belong to swap(int opcode) . ", opcode));
-                return;
-        }
+             DEC            BC      0B      8
+             DEC            DE      1B      8
+             DEC            HL      2B      8
+             DEC            SP      3B      8
+        */
+        final int pair = (opcode >> 4) & 3;
+        writePair(pair, readPair(pair) - 1);
 
-        // flags affected
-        if (value == 0) {
-            registerFlags.setZ();
-        }
-        else {
-            registerFlags.clearZ();
-        }
-        registerFlags.clearN();
-        registerFlags.clearH();
-        registerFlags.clearC();
+        consumeClockCycles(8);
     }
+    //</editor-fold>
 
+    //<editor-fold desc=" Misc " defaultstate="collapsed">
     public void daa(int opcode) {
         if (opcode != 0x27) {
             log.debug("Why are we even in daa() if opcode " + opcode + " isn't 0x27?");
@@ -2458,46 +1497,14 @@ public class Cpu {
          */
 
 
-        int a = registerA.read();
-        int op = a;
-
-        if (!registerFlags.readN()) {
-            if (registerFlags.readH() || ((op & 0xF) > 9)) {
-                op += 0x06;
-            }
-            if (registerFlags.readC() || (op > 0x9F)) {
-                op += 0x60;
-            }
-        }
-        else {
-            if (registerFlags.readH()) {
-                op = (op - 6) & 0xFF;
-            }
-            if (registerFlags.readC()) {
-                op -= 0x60;
-            }
-        }
-
-        registerFlags.clearH();
-        registerFlags.clearZ();
-
-        if ((op & 0x100) == 0x100) {
-            registerFlags.setC();
-        }
-
-        op &= 0xFF;
-
-        if (op == 0) {
-            registerFlags.setZ();
-        }
-
-        a = op;
-
-        registerA.write(a & 0xFF);
+        // the whole procedure is precomputed in AluTables, indexed by the N, H and C
+        // flags sitting above the current value of A.
+        int entry = AluTables.DAA[((readFlags() & 0b0111_0000) << 4) | registerA];
+        registerA = entry & 0xFF;
+        writeFlags(entry >> 8);
 
         consumeClockCycles(4);
     }
-
     public void cpl(int opcode) {
         /* 3.3.5.3. CPL
             Description:
@@ -2517,11 +1524,10 @@ public class Cpu {
         }
 
         // do the flip
-        registerA.write(~registerA.read() & 255);
+        registerA = ~registerA & 255;
 
         // flags affected
-        registerFlags.setN();
-        registerFlags.setH();
+        writeFlags(readFlags() | FlagsRegister.FLAG_N | FlagsRegister.FLAG_H);
 
         consumeClockCycles(4);
     }
@@ -2546,15 +1552,7 @@ public class Cpu {
             return;
         }
 
-        registerFlags.clearN();
-        registerFlags.clearH();
-
-        if (registerFlags.readC()) {
-            registerFlags.clearC();
-        }
-        else {
-            registerFlags.setC();
-        }
+        writeFlags((readFlags() & FlagsRegister.FLAG_Z) | (readC() ? 0 : FlagsRegister.FLAG_C));
 
         consumeClockCycles(4);
     }
@@ -2577,9 +1575,7 @@ public class Cpu {
             return;
         }
 
-        registerFlags.clearN();
-        registerFlags.clearH();
-        registerFlags.setC();
+        writeFlags((readFlags() & FlagsRegister.FLAG_Z) | FlagsRegister.FLAG_C);
 
         consumeClockCycles(4);
     }
@@ -2646,7 +1642,9 @@ public class Cpu {
             log.error("Why are we even in diEi() if opcode " + opcode + " isn't 0xF3 or 0xFB?");
         }
     }
+    //</editor-fold>
 
+    //<editor-fold desc=" Rotates & Shifts " defaultstate="collapsed">
     public void rlca(int opcode) {
         /*
         1. RLCA
@@ -2666,22 +1664,12 @@ public class Cpu {
             return;
         }
 
-        // perform operation
-        int oldvalue = registerA.read();
-        int result = (oldvalue << 1) | (oldvalue >> 7);
-        result &= 255;
-        registerA.write(result);
+        // perform operation. same as rlc, except Z is always reset
+        int entry = AluTables.RLC[registerA];
+        registerA = entry & 0xFF;
 
         // flags affected
-        registerFlags.clearZ();
-        registerFlags.clearN();
-        registerFlags.clearH();
-        if ((oldvalue & 0b1000_0000) != 0) {
-            registerFlags.setC();
-        }
-        else {
-            registerFlags.clearC();
-        }
+        writeFlags((entry >> 8) & 0b0111_0000);
 
         consumeClockCycles(4);
     }
@@ -2707,22 +1695,13 @@ public class Cpu {
             return;
         }
 
-        int result = registerA.read();
+        // same as rl, except Z is always reset
+        int oldcarry = readC() ? 1 : 0;
+        int entry = AluTables.RL[registerA];
+        registerA = (entry & 0xFF) | oldcarry;
 
-        boolean newcarry = (result >> 7) != 0;
-        int oldcarry = registerFlags.readC() ? 1 : 0;
-
-        registerA.write(((result << 1) | oldcarry) & 0b1111_1111);
-
-        if (newcarry) {
-            registerFlags.setC();
-        }
-        else {
-            registerFlags.clearC();
-        }
-        registerFlags.clearZ();
-        registerFlags.clearH();
-        registerFlags.clearN();
+        // flags affected
+        writeFlags((entry >> 8) & 0b0111_0000);
 
         consumeClockCycles(4);
     }
@@ -2746,21 +1725,12 @@ public class Cpu {
             return;
         }
 
-        int value = registerA.read();
-        int oldbit0 = value & 0b00000001;
-        value >>= 1;
-        registerA.write(value | (oldbit0 << 7));
+        // same as rrc, except Z is always reset
+        int entry = AluTables.RRC[registerA];
+        registerA = entry & 0xFF;
 
         // flags affected
-        if (oldbit0 != 0) {
-            registerFlags.setC();
-        }
-        else {
-            registerFlags.clearC();
-        }
-        registerFlags.clearH();
-        registerFlags.clearN();
-        registerFlags.clearZ();
+        writeFlags((entry >> 8) & 0b0111_0000);
 
         consumeClockCycles(4);
     }
@@ -2783,24 +1753,24 @@ public class Cpu {
             return;
         }
 
-        int value = registerA.read();
-        int newcarry = value & 0b00000001;
-        int oldcarry = registerFlags.readC() ? 1 : 0;
-        registerA.write((value >> 1) | (oldcarry << 7));
+        // same as rr, except Z is always reset
+        int oldcarry = readC() ? 1 : 0;
+        int entry = AluTables.RR[registerA];
+        registerA = (entry & 0xFF) | (oldcarry << 7);
 
-        if (newcarry == 1) {
-            registerFlags.setC();
-        }
-        else {
-            registerFlags.clearC();
-        }
-        registerFlags.clearZ();
-        registerFlags.clearH();
-        registerFlags.clearN();
+        // flags affected
+        writeFlags((entry >> 8) & 0b0111_0000);
 
         consumeClockCycles(4);
     }
 
+    // shared tail of the CB rotate, shift and swap instructions: store the result,
+    // spend the cycles and set the flags from a packed AluTables entry.
+    private void cbStore(int index, int entry) {
+        writeOperand(index, entry & 0xFF);
+        consumeClockCycles(index == OPERAND_HL ? 16 : 8);
+        writeFlags(entry >> 8);
+    }
     public void rlc(int opcode) {
         /*
         5. RLC n
@@ -2824,95 +1794,8 @@ public class Cpu {
         RLC         L           CB 05   8
         RLC         (HL)        CB 06   16
         */
-
-        // read value
-        int value = 0;
-        switch (opcode) {
-            case 0xCB07:
-                value = registerA.read();
-                break;
-            case 0xCB00:
-                value = registerB.read();
-                break;
-            case 0xCB01:
-                value = registerC.read();
-                break;
-            case 0xCB02:
-                value = registerD.read();
-                break;
-            case 0xCB03:
-                value = registerE.read();
-                break;
-            case 0xCB04:
-                value = registerH.read();
-                break;
-            case 0xCB05:
-                value = registerL.read();
-                break;
-            case 0xCB06:
-                value = mmu.readByte(readCombinedRegisters(registerH, registerL));
-                break;
-            default:
-                log.error("opcode " + opcode + " doesn't belong in rlc()");
-                return;
-        }
-
-        // perform operation
-        int result = (value << 1) | (value >> 7);
-        boolean bit7 = ((value & 0b10000000) >> 7) == 1;
-        result &= 255;
-
-        // write result
-        switch (opcode) {
-            case 0xCB07:
-                registerA.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB00:
-                registerB.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB01:
-                registerC.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB02:
-                registerD.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB03:
-                registerE.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB04:
-                registerH.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB05:
-                registerL.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB06:
-                mmu.writeByte(readCombinedRegisters(registerH, registerL), result);
-                consumeClockCycles(16);
-                break;
-        }
-
-        // flags affected
-        if (bit7) {
-            registerFlags.setC();
-        }
-        else {
-            registerFlags.clearC();
-        }
-        registerFlags.clearH();
-        registerFlags.clearN();
-        if (result == 0) {
-            registerFlags.setZ();
-        }
-        else {
-            registerFlags.clearZ();
-        }
+        final int index = opcode & 7;
+        cbStore(index, AluTables.RLC[readOperand(index)]);
     }
     public void rl(int opcode) {
         /*
@@ -2937,94 +1820,13 @@ public class Cpu {
         RL              L       CB 15   8
         RL              (HL)    CB 16   16
         */
-        // read value
-        int value = 0;
-        switch (opcode) {
-            case 0xCB17:
-                value = registerA.read();
-                break;
-            case 0xCB10:
-                value = registerB.read();
-                break;
-            case 0xCB11:
-                value = registerC.read();
-                break;
-            case 0xCB12:
-                value = registerD.read();
-                break;
-            case 0xCB13:
-                value = registerE.read();
-                break;
-            case 0xCB14:
-                value = registerH.read();
-                break;
-            case 0xCB15:
-                value = registerL.read();
-                break;
-            case 0xCB16:
-                value = mmu.readByte(readCombinedRegisters(registerH, registerL));
-                break;
-        }
-
-        // perform operation
-        boolean bit7 = ((value & 0b10000000) > 0);
-        boolean oldcarry = registerFlags.readC();
-        int result = (value << 1) & 0b1111_1111;
-        result |= oldcarry ? 1 : 0;
-
-        // write result
-        switch (opcode) {
-            case 0xCB17:
-                registerA.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB10:
-                registerB.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB11:
-                registerC.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB12:
-                registerD.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB13:
-                registerE.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB14:
-                registerH.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB15:
-                registerL.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB16:
-                mmu.writeByte(readCombinedRegisters(registerH, registerL), result);
-                consumeClockCycles(16);
-                break;
-        }
+        final int index = opcode & 7;
+        final int value = readOperand(index);
+        final int oldcarry = readC() ? 1 : 0;
 
-        // flags affected
-        if (result == 0) {
-            registerFlags.setZ();
-        }
-        else {
-            registerFlags.clearZ();
-        }
-        registerFlags.clearN();
-        registerFlags.clearH();
-        if (bit7) {
-            registerFlags.setC();
-        }
-        else {
-            registerFlags.clearC();
-        }
+        // a carry in means the result can't be zero
+        cbStore(index, (AluTables.RL[value] & ~(oldcarry << 15)) | oldcarry);
     }
-
     public void rrc(int opcode) {
         /*
         7. RRC n
@@ -3048,91 +1850,8 @@ public class Cpu {
         RRC L CB 0D 8
         RRC (HL) CB 0E 16
         */
-        // read value
-        int value = 0;
-        switch (opcode) {
-            case 0xCB0F:
-                value = registerA.read();
-                break;
-            case 0xCB08:
-                value = registerB.read();
-                break;
-            case 0xCB09:
-                value = registerC.read();
-                break;
-            case 0xCB0A:
-                value = registerD.read();
-                break;
-            case 0xCB0B:
-                value = registerE.read();
-                break;
-            case 0xCB0C:
-                value = registerH.read();
-                break;
-            case 0xCB0D:
-                value = registerL.read();
-                break;
-            case 0xCB0E:
-                value = mmu.readByte(readCombinedRegisters(registerH, registerL));
-                break;
-        }
-
-        // perform operation
-        int oldbit0 = value & 0b0000_0001;
-        value >>= 1;
-        int result = value | (oldbit0 << 7);
-
-        // write result
-        switch (opcode) {
-            case 0xCB0F:
-                registerA.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB08:
-                registerB.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB09:
-                registerC.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB0A:
-                registerD.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB0B:
-                registerE.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB0C:
-                registerH.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB0D:
-                registerL.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB0E:
-                mmu.writeByte(readCombinedRegisters(registerH, registerL), result);
-                consumeClockCycles(16);
-                break;
-        }
-
-        // flags affected
-        if (result == 0) {
-            registerFlags.setZ();
-        }
-        else {
-            registerFlags.clearZ();
-        }
-        registerFlags.clearN();
-        registerFlags.clearH();
-        if (oldbit0 == 1) {
-            registerFlags.setC();
-        }
-        else {
-            registerFlags.clearC();
-        }
+        final int index = opcode & 7;
+        cbStore(index, AluTables.RRC[readOperand(index)]);
     }
     public void rr(int opcode) {
         /*
@@ -3145,105 +1864,25 @@ public class Cpu {
         Z - Set if result is zero.
         N - Reset.
         H - Reset.
-        C - Contains old bit 0 data.
-        Opcodes:
-        Instruction Parameters Opcode Cycles
-        RR A CB 1F 8
-        RR B CB 18 8
-        RR C CB 19 8
-        RR D CB 1A 8
-        RR E CB 1B 8
-        RR H CB 1C 8
-        RR L CB 1D 8
-        RR (HL) CB 1E 16
-        */
-        // read value
-        int value = 0;
-        switch (opcode) {
-            case 0xCB1F:
-                value = registerA.read();
-                break;
-            case 0xCB18:
-                value = registerB.read();
-                break;
-            case 0xCB19:
-                value = registerC.read();
-                break;
-            case 0xCB1A:
-                value = registerD.read();
-                break;
-            case 0xCB1B:
-                value = registerE.read();
-                break;
-            case 0xCB1C:
-                value = registerH.read();
-                break;
-            case 0xCB1D:
-                value = registerL.read();
-                break;
-            case 0xCB1E:
-                value = mmu.readByte(readCombinedRegisters(registerH, registerL));
-                break;
-        }
-
-        // perform operation
-        int newcarry = value & 0b00000001;
-        int oldcarry = registerFlags.readC() ? 1 : 0;
-        int result = (value >> 1) | (oldcarry << 7);
-
-        // write result
-        switch (opcode) {
-            case 0xCB1F:
-                registerA.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB18:
-                registerB.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB19:
-                registerC.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB1A:
-                registerD.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB1B:
-                registerE.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB1C:
-                registerH.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB1D:
-                registerL.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB1E:
-                mmu.writeByte(readCombinedRegisters(registerH, registerL), result);
-                consumeClockCycles(16);
-                break;
-        }
+        C - Contains old bit 0 data.
+        Opcodes:
+        Instruction Parameters Opcode Cycles
+        RR A CB 1F 8
+        RR B CB 18 8
+        RR C CB 19 8
+        RR D CB 1A 8
+        RR E CB 1B 8
+        RR H CB 1C 8
+        RR L CB 1D 8
+        RR (HL) CB 1E 16
+        */
+        final int index = opcode & 7;
+        final int value = readOperand(index);
+        final int oldcarry = readC() ? 1 : 0;
 
-        // flags affected
-        if (newcarry == 1) {
-            registerFlags.setC();
-        }
-        else {
-            registerFlags.clearC();
-        }
-        if (result == 0) {
-            registerFlags.setZ();
-        }
-        else {
-            registerFlags.clearZ();
-        }
-        registerFlags.clearN();
-        registerFlags.clearH();
+        // a carry in means the result can't be zero
+        cbStore(index, (AluTables.RR[value] & ~(oldcarry << 15)) | (oldcarry << 7));
     }
-
     public void sla(int opcode) {
         /*
         9. SLA n
@@ -3267,91 +1906,8 @@ public class Cpu {
         SLA L CB 25 8
         SLA (HL) CB 26 16
         */
-        // read value
-        int value = 0;
-        switch (opcode) {
-            case 0xCB27:
-                value = registerA.read();
-                break;
-            case 0xCB20:
-                value = registerB.read();
-                break;
-            case 0xCB21:
-                value = registerC.read();
-                break;
-            case 0xCB22:
-                value = registerD.read();
-                break;
-            case 0xCB23:
-                value = registerE.read();
-                break;
-            case 0xCB24:
-                value = registerH.read();
-                break;
-            case 0xCB25:
-                value = registerL.read();
-                break;
-            case 0xCB26:
-                value = mmu.readByte(readCombinedRegisters(registerH, registerL));
-                break;
-        }
-
-        // perform operation
-        boolean carry = (((value & 0b10000000) >> 7) == 1);
-        int result = value << 1;
-        result &= 255;
-
-        // store result
-        switch (opcode) {
-            case 0xCB27:
-                registerA.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB20:
-                registerB.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB21:
-                registerC.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB22:
-                registerD.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB23:
-                registerE.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB24:
-                registerH.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB25:
-                registerL.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB26:
-                mmu.writeByte(readCombinedRegisters(registerH, registerL), result);
-                consumeClockCycles(16);
-                break;
-        }
-
-        // flags affected
-        if (result == 0) {
-            registerFlags.setZ();
-        }
-        else {
-            registerFlags.clearZ();
-        }
-        if (carry) {
-            registerFlags.setC();
-        }
-        else {
-            registerFlags.clearC();
-        }
-        registerFlags.clearN();
-        registerFlags.clearH();
+        final int index = opcode & 7;
+        cbStore(index, AluTables.SLA[readOperand(index)]);
     }
     public void sra(int opcode) {
         /*
@@ -3376,90 +1932,8 @@ public class Cpu {
         SRA L    CB 2D 8
         SRA (HL) CB 2E 16
         */
-        // read value
-        int value = 0;
-        switch (opcode) {
-            case 0xCB2F:
-                value = registerA.read();
-                break;
-            case 0xCB28:
-                value = registerB.read();
-                break;
-            case 0xCB29:
-                value = registerC.read();
-                break;
-            case 0xCB2A:
-                value = registerD.read();
-                break;
-            case 0xCB2B:
-                value = registerE.read();
-                break;
-            case 0xCB2C:
-                value = registerH.read();
-                break;
-            case 0xCB2D:
-                value = registerL.read();
-                break;
-            case 0xCB2E:
-                value = mmu.readByte(readCombinedRegisters(registerH, registerL));
-                break;
-        }
-
-        // perform the operation
-        boolean carry = ((value & 1) != 0);
-        int result = (value >> 1) | (value & 0b10000000);
-
-        // store result
-        switch (opcode) {
-            case 0xCB2F:
-                registerA.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB28:
-                registerB.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB29:
-                registerC.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB2A:
-                registerD.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB2B:
-                registerE.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB2C:
-                registerH.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB2D:
-                registerL.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB2E:
-                mmu.writeByte(readCombinedRegisters(registerH, registerL), result);
-                consumeClockCycles(16);
-                break;
-        }
-
-        // flags affected
-        if (carry) {
-            registerFlags.setC();
-        }
-        else {
-            registerFlags.clearC();
-        }
-        if (result == 0) {
-            registerFlags.setZ();
-        }
-        else {
-            registerFlags.clearZ();
-        }
-        registerFlags.clearH();
-        registerFlags.clearN();
+        final int index = opcode & 7;
+        cbStore(index, AluTables.SRA[readOperand(index)]);
     }
     public void srl(int opcode) {
         /*
@@ -3484,278 +1958,81 @@ public class Cpu {
         SRL L CB 3D 8
         SRL (HL) CB 3E 16
         */
-        // read value
-        int value = 0;
-        switch (opcode) {
-            case 0xCB3F:
-                value = registerA.read();
-                break;
-            case 0xCB38:
-                value = registerB.read();
-                break;
-            case 0xCB39:
-                value = registerC.read();
-                break;
-            case 0xCB3A:
-                value = registerD.read();
-                break;
-            case 0xCB3B:
-                value = registerE.read();
-                break;
-            case 0xCB3C:
-                value = registerH.read();
-                break;
-            case 0xCB3D:
-                value = registerL.read();
-                break;
-            case 0xCB3E:
-                value = mmu.readByte(readCombinedRegisters(registerH, registerL));
-                break;
-        }
-
-        // perform the operation
-        boolean carry = (value & 0b00000001) != 0;
-        int result = value >> 1;
-
-        // store result
-        switch (opcode) {
-            case 0xCB3F:
-                registerA.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB38:
-                registerB.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB39:
-                registerC.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB3A:
-                registerD.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB3B:
-                registerE.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB3C:
-                registerH.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB3D:
-                registerL.write(result);
-                consumeClockCycles(8);
-                break;
-            case 0xCB3E:
-                mmu.writeByte(readCombinedRegisters(registerH, registerL), result);
-                consumeClockCycles(16);
-                break;
-        }
-
-        // flags affected
-        if (result == 0) {
-            registerFlags.setZ();
-        }
-        else {
-            registerFlags.clearZ();
-        }
-        if (carry) {
-            registerFlags.setC();
-        }
-        else {
-            registerFlags.clearC();
-        }
-        registerFlags.clearN();
-        registerFlags.clearH();
-    }
-
-    private int cbHelperRead(int opcode) {
-        // see which register we'll use by looking only at
-        // the least significant hex digit (0x000F, or 0b00001111 mask)
-        int value = 0;
-        switch (opcode & 0b00001111) {
-            case 0x0:
-            case 0x8:
-                value = registerB.read();
-                consumeClockCycles(8);
-                break;
-            case 0x1:
-            case 0x9:
-                value = registerC.read();
-                consumeClockCycles(8);
-                break;
-            case 0x2:
-            case 0xA:
-                value = registerD.read();
-                consumeClockCycles(8);
-                break;
-            case 0x3:
-            case 0xB:
-                value = registerE.read();
-                consumeClockCycles(8);
-                break;
-            case 0x4:
-            case 0xC:
-                value = registerH.read();
-                consumeClockCycles(8);
-                break;
-            case 0x5:
-            case 0xD:
-                value = registerL.read();
-                consumeClockCycles(8);
-                break;
-            case 0x6:
-            case 0xE:
-                value = mmu.readByte(readCombinedRegisters(registerH, registerL));
-                consumeClockCycles(16);
-                break;
-            case 0x7:
-            case 0xF:
-                value = registerA.read();
-                consumeClockCycles(8);
-                break;
-        }
-
-        return value;
+        final int index = opcode & 7;
+        cbStore(index, AluTables.SRL[readOperand(index)]);
     }
-    private void cbHelperWrite(int opcode, int value) {
-        // see which register we'll use by looking only at the least significant
-        // hex digit (0x000F or 0b00001111 mask)
-        switch (opcode & 0b00001111) {
-            case 0x0:
-            case 0x8:
-                registerB.write(value);
-                consumeClockCycles(8);
-                break;
-            case 0x1:
-            case 0x9:
-                registerC.write(value);
-                consumeClockCycles(8);
-                break;
-            case 0x2:
-            case 0xA:
-                registerD.write(value);
-                consumeClockCycles(8);
-                break;
-            case 0x3:
-            case 0xB:
-                registerE.write(value);
-                consumeClockCycles(8);
-                break;
-            case 0x4:
-            case 0xC:
-                registerH.write(value);
-                consumeClockCycles(8);
-                break;
-            case 0x5:
-            case 0xD:
-                registerL.write(value);
-                consumeClockCycles(8);
-                break;
-            case 0x6:
-            case 0xE:
-                mmu.writeByte(readCombinedRegisters(registerH, registerL), value);
-                consumeClockCycles(16);
-                break;
-            case 0x7:
-            case 0xF:
-                registerA.write(value);
-                consumeClockCycles(8);
-                break;
-        }
+    public void swap(int opcode) {
+        /* 3.3.5.1. SWAP n
+            Description:
+               Swap upper & lower nibles of n.
+            Use with:
+               n = A,B,C,D,E,H,L,(HL)
+            Flags affected:
+               Z - Set if result is zero.
+               N - Reset.
+               H - Reset.
+               C - Reset.
+            Opcodes:
+            Instruction Parameters Opcode Cycles
+               SWAP         A       CB 37   8
+               SWAP         B       CB 30   8
+               SWAP         C       CB 31   8
+               SWAP         D       CB 32   8
+               SWAP         E       CB 33   8
+               SWAP         H       CB 34   8
+               SWAP         L       CB 35   8
+               SWAP         (HL)    CB 36   16
+         */
+        final int index = opcode & 7;
+        cbStore(index, AluTables.SWAP[readOperand(index)]);
     }
+    //</editor-fold>
+
+    //<editor-fold desc=" Bit Opcodes " defaultstate="collapsed">
     public void bit(int opcode) {
-        // this is going to be an interesting one....
-        // starting at opcode 0xCB4X where X is:
-        //    opcode:     0  1  2  3  4  5  6  7  8  9  A  B  C  D  E  F  0
-        //    register:   B  C  D  E  H  L mHL A  B  C  D  E  H  L mHL A  B
-        //    bit:        0  0  0  0  0  0  0  0  1  1  1  1  1  1  1  1  2
-        //    ... and so on.
+        // BIT b,r - CB 40 through CB 7F. the register comes from opcode & 7
+        // and the bit index from (opcode >> 3) & 7.
         // Flags affected:
         //    Z - Set if bit b of register r is 0.
         //    N - Reset.
         //    H - Set.
         //    C - Not affected.
         // Timing:  any CPU register is 8 cycles. Memory location is 16 cycles.
-        //          the cycles timing is handled in the helper functions
-        ////////////////////////////////////////////////////////////////////////
-
-        // validate opcode actually belongs in this function:
-        if (opcode < 0xCB40 || opcode > 0xCB7F) {
-            log.error("Opcode " + opcode + " doesn't belong in bit()");
-            return;
-        }
-
-        // get the value we'll be looking at
-        int value = cbHelperRead(opcode);
-
-        // next let's grab the bit index
-        int bitIndex = (opcode - 0xCB40) / 8;
+        final int index = opcode & 7;
+        final int value = readOperand(index);
+        consumeClockCycles(index == OPERAND_HL ? 16 : 8);
 
-        // read the bit at `bitindex` of the value we found earlier:
-        boolean bitValue = ((value >> bitIndex) & 1) == 1;
+        final boolean bitValue = ((value >> ((opcode >> 3) & 7)) & 1) == 1;
 
         // flags affected
-        if (bitValue) {
-            registerFlags.clearZ();
+        int flags = FlagsRegister.FLAG_H;
+        if (!bitValue) {
+            flags |= FlagsRegister.FLAG_Z;
         }
-        else {
-            registerFlags.setZ();
+        if (readC()) {
+            flags |= FlagsRegister.FLAG_C;
         }
-        registerFlags.setH();
-        registerFlags.clearN();
+        writeFlags(flags);
     }
     public void res(int opcode) {
-        // see bit function above. This works the same way except
-        // instead of reading the bit, it just sets it to 0 and affects
-        // no flags. Starts at 0xCB80
-
-        // validate opcode actually belongs in this function:
-        if (opcode < 0xCB80 || opcode > 0xCBBF) {
-            log.error("Opcode " + opcode + " doesn't belong in res()");
-            return;
-        }
-
-        // get the value we'll be looking at
-        int value = cbHelperRead(opcode);
-
-        // next let's grab the bit index
-        int bitIndex = (opcode - 0xCB80) / 8;
-        int mask = 1 << bitIndex; // shift 1 to it's spot based on the index
-        mask = ~mask; // negate it so every bit is 1 except for the one we're clearing
-
-        // now let's set it to 0.
-        value = (value & mask); // AND the value with the mask in order to clear the specified bit.
-
-        // store result
-        cbHelperWrite(opcode, value);
+        // RES b,r - CB 80 through CB BF. works the same way as bit() above except
+        // instead of reading the bit, it clears it and affects no flags.
+        final int index = opcode & 7;
+        final int value = readOperand(index);
+        writeOperand(index, value & ~(1 << ((opcode >> 3) & 7)));
+        consumeClockCycles(index == OPERAND_HL ? 16 : 8);
     }
     public void set(int opcode) {
-        // see bit instruction above. This one works the same way except
-        // instead of reading the bit, it will just set the bit in question to 1
-        // with no flags affected. Starts at 0xCBC0 and ends at 0xCC00.
-
-        // validate opcode actually belongs in this function:
-        if (opcode < 0xCBC0 || opcode > 0xCBFF) {
-            log.error("Opcode " + opcode + " doesn't belong in set()");
-            return;
-        }
-
-        // get the value we'll be looking at
-        int value = cbHelperRead(opcode);
-
-        // next let's grab the bit index
-        int bitIndex = (opcode - 0xCBC0) / 8;
-        int mask = 1 << bitIndex; // shift 1 to it's spot based on the index
-
-        // now let's set it.
-        value = (value | mask); // AND the value with the mask in order to set the specified bit.
-
-        // store result
-        cbHelperWrite(opcode, value);
+        // SET b,r - CB C0 through CB FF. works the same way as res() above except
+        // it sets the bit in question to 1.
+        final int index = opcode & 7;
+        final int value = readOperand(index);
+        writeOperand(index, value | (1 << ((opcode >> 3) & 7)));
+        consumeClockCycles(index == OPERAND_HL ? 16 : 8);
     }
+    //</editor-fold>
 
+    //<editor-fold desc=" Jumps " defaultstate="collapsed">
     public void jump(int opcode) {
         /*
         1. JP nn
@@ -3767,18 +2044,7 @@ public class Cpu {
         Instruction Parameters Opcode Cycles
         JP nn C3 12
         */
-        if (opcode != 0xC3) {
-            log.error("Opcode " + opcode + " doesn't belong in jump()");
-            return;
-        }
-
-        int address = mmu.readByte(registerPC.read()); // least significant byte
-        registerPC.inc();
-        int temp = mmu.readByte(registerPC.read()); // most significant byte
-        registerPC.inc();
-        temp <<= 8;
-        address |= temp;
-        load(registerPC, address); // load it into PC so it will be executed next.
+        registerPC = readImmediateWord(); // load it into PC so it will be executed next.
         consumeClockCycles(16);
     }
     public void jpcc(int opcode) {
@@ -3799,34 +2065,8 @@ public class Cpu {
         JP NC,nn D2 12
         JP C,nn DA 12
         */
-        if (opcode != 0xC2 &&
-                opcode != 0xCA &&
-                opcode != 0xD2 &&
-                opcode != 0xDA) {
-            log.error("Opcode " + opcode + " doesn't belong in jpcc()");
-            return;
-        }
-
-        boolean condition = false;
-        switch (opcode) {
-            case 0xC2:
-                condition = (!registerFlags.readZ());
-                break;
-            case 0xCA:
-                condition = registerFlags.readZ();
-                break;
-            case 0xD2:
-                condition = (!registerFlags.readC());
-                break;
-            case 0xDA:
-                condition = registerFlags.readC();
-                break;
-        }
-
-        int address = mmu.readByte(registerPC.read()); // least significant byte
-        registerPC.inc();
-        int temp = mmu.readByte(registerPC.read()); // most significant byte
-        registerPC.inc();
+        final boolean condition = condition(opcode);
+        final int address = readImmediateWord();
 
         // if our condition for jumping is false, don't jump
         if (!condition) {
@@ -3835,9 +2075,7 @@ public class Cpu {
         }
 
         // else perform jump
-        temp <<= 8;
-        address |= temp;
-        load(registerPC, address); // load it into PC so it will be executed next.
+        registerPC = address;
         consumeClockCycles(16);
     }
     public void jphl(int opcode) {
@@ -3849,12 +2087,7 @@ public class Cpu {
         Instruction Parameters Opcode Cycles
         JP (HL) E9 4
         */
-        if (opcode != 0xE9) {
-            log.error("Opcode " + opcode + " doesn't belong in jphl()");
-            return;
-        }
-
-        load(registerPC, readCombinedRegisters(registerH, registerL));
+        registerPC = getHL();
         consumeClockCycles(4);
     }
     public void jr(int opcode) {
@@ -3868,23 +2101,8 @@ public class Cpu {
         Instruction Parameters Opcode Cycles
         JR n 18 8
         */
-        if (opcode != 0x18) {
-            log.error("Opcode " + opcode + " doesn't belong in jr()");
-            return;
-        }
-
-        int n = mmu.readByte(registerPC.read());
-        registerPC.inc();
-
-        int address = registerPC.read();
-        registerPC.inc();
-
-        if (n > 127) {
-            n = -((~n + 1) & 255); // 2's complement
-        }
-
-        address += n;
-        load(registerPC, address);
+        final int n = (byte) readImmediate();
+        registerPC = (registerPC + n) & 0xFFFF;
         consumeClockCycles(12);
     }
     public void jrcc(int opcode) {
@@ -3906,32 +2124,8 @@ public class Cpu {
         JR NC,* 30 8
         JR C,* 38 8
         */
-        if (opcode != 0x20 &&
-                opcode != 0x28 &&
-                opcode != 0x30 &&
-                opcode != 0x38) {
-            log.error("Opcode " + opcode + " doesn't belong in jrcc()");
-            return;
-        }
-
-        boolean condition = false;
-        switch (opcode) {
-            case 0x20:
-                condition = (!registerFlags.readZ());
-                break;
-            case 0x28:
-                condition = registerFlags.readZ();
-                break;
-            case 0x30:
-                condition = (!registerFlags.readC());
-                break;
-            case 0x38:
-                condition = registerFlags.readC();
-                break;
-        }
-
-        int n = mmu.readByte(registerPC.read());
-        registerPC.inc();
+        final boolean condition = condition(opcode);
+        final int n = (byte) readImmediate();
 
         // if our condition for jumping is false, don't jump
         if (!condition) {
@@ -3939,15 +2133,81 @@ public class Cpu {
             return;
         }
 
-        if (n > 127) {
-            n = -((~n + 1) & 255); // 2's complement
-        }
-        int address = registerPC.read();
-        address += n;
-        load(registerPC, address);
+        registerPC = (registerPC + n) & 0xFFFF;
         consumeClockCycles(12);
     }
-
+    //</editor-fold>
+
+    //<editor-fold desc=" Superinstructions " defaultstate="collapsed">
+    // instruction sequences that come up all the time in game code, run as one handler.
+    // every part still consumes its own cycles, so the timer and gpu see exactly what
+    // they would have stepping one instruction at a time. the parts read their
+    // immediates one after the other out of the record's operands.
+
+    // between two parts step() would have run processEi() and processInterrupts(). if either
+    // would have done something, stop here and leave the rest to the next step().
+    private boolean stopBetweenParts() {
+        return pendingInterruptEnable || InterruptManager.getInstance().isInterruptPending();
+    }
+    // move pc past the next part's opcode, which step() would have fetched
+    private void nextPart() {
+        registerPC = (registerPC + 1) & 0xFFFF;
+    }
+
+    private void decJrNz(int opcode) {
+        // DEC r / JR NZ,e - counted loops
+        dec(opcode);
+        if (stopBetweenParts()) return;
+        nextPart();
+        jrcc(0x20);
+    }
+    private void ldiCopy() {
+        // LD A,(HL+) / LD (DE),A - memory copy loops
+        ldIncrementDecrement(0x2a);
+        if (stopBetweenParts()) return;
+        nextPart();
+        ldIndirect(0x12);
+    }
+    private void ldhCpJr(int jrOpcode) {
+        // LDH A,(n) / CP n / JR cc,e - polling an io register, usually LY
+        ldHigh(0xf0);
+        if (stopBetweenParts()) return;
+        nextPart();
+        cp(0xfe);
+        if (stopBetweenParts()) return;
+        nextPart();
+        jrcc(jrOpcode);
+    }
+    private void cpJrZ() {
+        // CP n / JR Z,e - comparing against a constant
+        cp(0xfe);
+        if (stopBetweenParts()) return;
+        nextPart();
+        jrcc(0x28);
+    }
+    private void ldhAndJr(int jrOpcode) {
+        // LDH A,(n) / AND A / JR cc,e - waiting on a flag the vblank handler sets in hram
+        ldHigh(0xf0);
+        if (stopBetweenParts()) return;
+        nextPart();
+        and(0xa7);
+        if (stopBetweenParts()) return;
+        nextPart();
+        jrcc(jrOpcode);
+    }
+    private void pairZeroJrNz(int ldOpcode, int orOpcode) {
+        // LD A,B / OR C / JR NZ,e (or D and E) - loops counting a register pair down to zero
+        ldRegister(ldOpcode);
+        if (stopBetweenParts()) return;
+        nextPart();
+        or(orOpcode);
+        if (stopBetweenParts()) return;
+        nextPart();
+        jrcc(0x20);
+    }
+    //</editor-fold>
+
+    //<editor-fold desc=" Calls, Restarts & Returns " defaultstate="collapsed">
     public void call(int opcode) {
         /*
         1. CALL nn
@@ -3960,24 +2220,12 @@ public class Cpu {
         Instruction Parameters Opcode Cycles
         CALL nn CD 12
         */
-        if (opcode != 0xCD) {
-            log.error("Opcode " + opcode + " doesn't belong in call()");
-            return;
-        }
-
-
-        // jump to address nn two byte immediate value. (LS byte first)
-        int address = mmu.readByte(registerPC.read()); // least significant byte
-        registerPC.inc();
-        int temp = mmu.readByte(registerPC.read());    // most significant byte
-        registerPC.inc();
-        temp <<= 8;
-        address |= temp;                              // combine
+        final int address = readImmediateWord();
 
         // push address of next instruction onto stack.
-        pushHelper(registerPC.read());
+        pushHelper(registerPC);
 
-        load(registerPC, address);                    // jump to this address.
+        registerPC = address; // jump to this address.
         consumeClockCycles(12);
     }
     public void callcc(int opcode) {
@@ -3997,35 +2245,8 @@ public class Cpu {
         CALL NC,nn D4 12
         CALL C,nn DC 12
         */
-        if (opcode != 0xC4 &&
-                opcode != 0xCC &&
-                opcode != 0xD4 &&
-                opcode != 0xDC) {
-            log.error("Opcode " + opcode + " doesn't belong in callcc()");
-            return;
-        }
-
-        boolean condition = false;
-        switch (opcode) {
-            case 0xC4:
-                condition = (!registerFlags.readZ());
-                break;
-            case 0xCC:
-                condition = registerFlags.readZ();
-                break;
-            case 0xD4:
-                condition = (!registerFlags.readC());
-                break;
-            case 0xDC:
-                condition = registerFlags.readC();
-                break;
-        }
-
-        // jump to address nn two byte immediate value. (LS byte first)
-        int address = mmu.readByte(registerPC.read()); // least significant byte
-        registerPC.inc();
-        int temp = mmu.readByte(registerPC.read());    // most significant byte
-        registerPC.inc();
+        final boolean condition = condition(opcode);
+        final int address = readImmediateWord();
 
         // if our condition for jumping is false, don't jump
         if (!condition) {
@@ -4034,11 +2255,9 @@ public class Cpu {
         }
 
         // push address of next instruction onto stack.
-        pushHelper(registerPC.read());
+        pushHelper(registerPC);
 
-        temp <<= 8;
-        address |= temp;                              // combine
-        load(registerPC, address);                    // jump to this address.
+        registerPC = address; // jump to this address.
         consumeClockCycles(24);
     }
 
@@ -4061,57 +2280,14 @@ public class Cpu {
         RST 30H F7 32
         RST 38H FF 32
         */
-        if (opcode != 0xC7 &&
-                opcode != 0xCF &&
-                opcode != 0xD7 &&
-                opcode != 0xDF &&
-                opcode != 0xE7 &&
-                opcode != 0xEF &&
-                opcode != 0xF7 &&
-                opcode != 0xFF) {
-            log.error("Opcode " + opcode + " doesn't belong in rst()");
-            return;
-        }
-
         // push address of instruction onto stack.
-        pushHelper(registerPC.read());
-
-        int address = 0;
-        switch (opcode) {
-            case 0xC7:
-                address = 0x00;
-                break;
-            case 0xCF:
-                address = 0x08;
-                break;
-            case 0xD7:
-                address = 0x10;
-                break;
-            case 0xDF:
-                address = 0x18;
-                break;
-            case 0xE7:
-                address = 0x20;
-                break;
-            case 0xEF:
-                address = 0x28;
-                break;
-            case 0xF7:
-                address = 0x30;
-                break;
-            case 0xFF:
-                address = 0x38;
-                break;
-        }
-        load(registerPC, address);
+        pushHelper(registerPC);
 
+        // the restart address is the middle three bits of the opcode, times 8
+        registerPC = opcode & 0b0011_1000;
         consumeClockCycles(16);
     }
 
-    private void retHelper() {
-        int address = popHelper();
-        load(registerPC, address);
-    }
     public void ret(int opcode) {
         /*
         1. RET
@@ -4121,12 +2297,7 @@ public class Cpu {
         Instruction Parameters Opcode Cycles
         RET -/- C9 8
         */
-        if (opcode != 0xC9) {
-            log.error("Opcode " + opcode + " doesn't belong in ret()");
-            return;
-        }
-
-        retHelper();
+        registerPC = popHelper();
         consumeClockCycles(16);
     }
     public void retcc(int opcode) {
@@ -4146,38 +2317,14 @@ public class Cpu {
         RET NC D0 8
         RET C D8 8
         */
-        if (opcode != 0xC0 &&
-                opcode != 0xC8 &&
-                opcode != 0xD0 &&
-                opcode != 0xD8) {
-            log.error("Opcode " + opcode + " doesn't belong in retcc()");
-            return;
-        }
-
-        boolean condition = false;
-        switch (opcode) {
-            case 0xC0:
-                condition = (!registerFlags.readZ());
-                break;
-            case 0xC8:
-                condition = registerFlags.readZ();
-                break;
-            case 0xD0:
-                condition = (!registerFlags.readC());
-                break;
-            case 0xD8:
-                condition = registerFlags.readC();
-                break;
-        }
-
         // if our condition for jumping is false, don't jump
-        if (!condition) {
+        if (!condition(opcode)) {
             consumeClockCycles(8);
             return;
         }
 
         // actually return/jump
-        retHelper();
+        registerPC = popHelper();
         consumeClockCycles(20);
     }
     public void reti(int opcode) {
@@ -4189,13 +2336,9 @@ public class Cpu {
         Instruction Parameters Opcode Cycles
         RETI -/- D9 8
         */
-        if (opcode != 0xD9) {
-            log.error("Opcode " + opcode + " doesn't belong in ret()");
-            return;
-        }
-
-        retHelper();
+        registerPC = popHelper();
         InterruptManager.getInstance().masterEnable();
         consumeClockCycles(16);
     }
+    //</editor-fold>
 }
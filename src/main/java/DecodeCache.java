@@ -0,0 +1,309 @@
+import helpers.Logger;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * File created on 10/18/2026.
+ *
+ * Pre-decoded instructions for the cpu. The first time an address is executed its opcode
+ * and immediate operands are read through the mmu and kept in an Instruction record, after
+ * that step() runs straight from the record and never goes back to the mmu for them.
+ *
+ * Records are cached by (bank, pc):
+ *   0x0000-0x3FFF  rom bank 0 (not while the bootrom is still mapped over 0x0000-0x00FF)
+ *   0x4000-0x7FFF  the rom bank currently selected in the MbcManager
+ *   0xC000-0xDFFF  wram
+ *   0xFF80-0xFFFE  hram
+ * anything else is decoded again every time it runs, same as before. So is everything below
+ * 0xFF00 while an oam dma is running, since the cpu can only reach io and hram then.
+ *
+ * Rom can't change under a record, but ram can, so every ram byte that's part of a record
+ * is marked and a write to it drops the records that cover it.
+ *
+ * Sequences the cpu has a fused handler for (see Cpu.buildFusedInstructions()) are
+ * decoded into a single record covering all of their instructions, so they run with one
+ * dispatch. The triple is tried before the pair.
+ */
+final class DecodeCache {
+    private Logger log = new Logger("DEC", Logger.Level.INFO);
+
+    // instruction length in bytes, indexed by opcode. 0xCB is the prefix plus its opcode.
+    static final int[] LENGTH = new int[0x100];
+    static {
+        Arrays.fill(LENGTH, 1);
+        for (int opcode : new int[] {
+                0x06, 0x0E, 0x16, 0x1E, 0x26, 0x2E, 0x36, 0x3E,  // LD r,n
+                0x18, 0x20, 0x28, 0x30, 0x38,                    // JR
+                0xC6, 0xCE, 0xD6, 0xDE, 0xE6, 0xEE, 0xF6, 0xFE,  // alu n
+                0xE0, 0xF0, 0xE8, 0xF8, 0xCB }) {
+            LENGTH[opcode] = 2;
+        }
+        for (int opcode : new int[] {
+                0x01, 0x11, 0x21, 0x31, 0x08, 0xEA, 0xFA,        // LD rr,nn  LD (nn),SP  LD (nn),A  LD A,(nn)
+                0xC2, 0xC3, 0xCA, 0xD2, 0xDA,                    // JP
+                0xC4, 0xCC, 0xCD, 0xD4, 0xDC }) {                // CALL
+            LENGTH[opcode] = 3;
+        }
+    }
+
+    // opcodes that end a basic block: anything that can jump, halt, or change interrupt state.
+    static final boolean[] ENDS_BLOCK = new boolean[0x100];
+    static {
+        for (int opcode : new int[] {
+                0x18, 0x20, 0x28, 0x30, 0x38,                    // JR
+                0xC2, 0xC3, 0xCA, 0xD2, 0xDA, 0xE9,              // JP
+                0xC4, 0xCC, 0xCD, 0xD4, 0xDC,                    // CALL
+                0xC0, 0xC8, 0xC9, 0xD0, 0xD8, 0xD9,              // RET, RETI
+                0xC7, 0xCF, 0xD7, 0xDF, 0xE7, 0xEF, 0xF7, 0xFF,  // RST
+                0x10, 0x76, 0xFB }) {                            // STOP, HALT, EI
+            ENDS_BLOCK[opcode] = true;
+        }
+    }
+
+    // longest record, a fused LDH A,(n) / CP n / JR cc,e
+    static final int MAX_LENGTH = 6;
+
+    // key for a fused instruction sequence of up to three unprefixed opcodes.
+    static int sequence(int... opcodes) {
+        int key = opcodes.length << 24;
+        for (int i = 0; i < opcodes.length; i++) {
+            key |= opcodes[i] << (16 - 8 * i);
+        }
+        return key;
+    }
+
+    static final class Instruction {
+        final int opcode;       // 0x00-0xFF, or 0xCB00 | opcode for the prefixed ones
+        final Runnable handler; // the cpu's dispatch table entry for opcode
+        final int immediate;    // operand bytes, first one in the low byte
+        final int length;       // in bytes, prefix and opcode included
+        final int operandPc;    // pc once the opcode has been fetched
+        final boolean endsBlock;
+        final int parts;        // instructions in the record, more than 1 if fused
+
+        private Instruction(int opcode, Runnable handler, int immediate, int length, int operandPc) {
+            this(opcode, handler, immediate, length, operandPc,
+                    opcode < 0x100 && ENDS_BLOCK[opcode], 1);
+        }
+        private Instruction(int opcode, Runnable handler, int immediate, int length, int operandPc,
+                            boolean endsBlock, int parts) {
+            this.opcode = opcode;
+            this.handler = handler;
+            this.immediate = immediate;
+            this.length = length;
+            this.operandPc = operandPc;
+            this.endsBlock = endsBlock;
+            this.parts = parts;
+        }
+    }
+
+    private final MemoryManager mmu;
+    private final MbcManager mbc;
+    private final Runnable[] instructions;
+    private final Runnable[] cbInstructions;
+    private final Map<Integer, Runnable> fusedInstructions;
+
+    private final Instruction[][] romInstructions = new Instruction[0x200][];
+    private final Instruction[] wramInstructions = new Instruction[0x2000];
+    private final Instruction[] hramInstructions = new Instruction[0x80];
+    // ram bytes that belong to a cached record.
+    private final boolean[] wramCode = new boolean[0x2000];
+    private final boolean[] hramCode = new boolean[0x80];
+
+    private long hits = 0;
+    private long misses = 0;
+    private long uncached = 0;
+    private long invalidations = 0;
+    private long fused = 0;
+
+    DecodeCache(MemoryManager mmu, MbcManager mbc, Runnable[] instructions, Runnable[] cbInstructions,
+                Map<Integer, Runnable> fusedInstructions) {
+        this.mmu = mmu;
+        this.mbc = mbc;
+        this.instructions = instructions;
+        this.cbInstructions = cbInstructions;
+        this.fusedInstructions = fusedInstructions;
+    }
+
+    // the decoded instruction at pc. only reads memory the first time pc is seen.
+    Instruction fetch(final int pc) {
+        if (mmu.isDmaActive() && pc < 0xFF00) {
+            // the oam dma has the bus, so the cpu fetches the same 0xFF any other read sees.
+            // records cached before the transfer don't apply until it's done.
+            uncached++;
+            return decode(pc);
+        }
+
+        Instruction[] region;
+        int index;
+        boolean[] code = null;
+        if (pc < 0x4000 && !(pc < 0x100 && mmu.inBootrom)) {
+            region = romBank(0);
+            index = pc;
+        }
+        else if (pc >= 0x4000 && pc < 0x8000) {
+            region = romBank(mbc.getRomBank());
+            index = pc - 0x4000;
+        }
+        else if (pc >= 0xC000 && pc <= 0xDFFF) {
+            region = wramInstructions;
+            code = wramCode;
+            index = pc - 0xC000;
+        }
+        else if (pc >= 0xFF80 && pc <= 0xFFFE) {
+            region = hramInstructions;
+            code = hramCode;
+            index = pc - 0xFF80;
+        }
+        else {
+            uncached++;
+            return decode(pc);
+        }
+
+        Instruction instruction = region[index];
+        if (instruction != null) {
+            hits++;
+            return instruction;
+        }
+
+        instruction = decode(pc);
+        if (index + instruction.length > region.length) {
+            // operands run into the next region, which may be banked differently
+            uncached++;
+            return instruction;
+        }
+        instruction = fuse(instruction, pc, region.length - index);
+        misses++;
+        region[index] = instruction;
+        if (code != null) {
+            Arrays.fill(code, index, index + instruction.length, true);
+        }
+        return instruction;
+    }
+
+    // called by the mmu on every write.
+    void memoryWritten(final int address) {
+        if (address >= 0xC000 && address <= 0xFDFF) {
+            int index = (address - 0xC000) & 0x1FFF; // echo ram mirrors wram
+            if (wramCode[index]) {
+                invalidate(wramInstructions, wramCode, index);
+            }
+        }
+        else if (address >= 0xFF80 && address <= 0xFFFE) {
+            if (hramCode[address - 0xFF80]) {
+                invalidate(hramInstructions, hramCode, address - 0xFF80);
+            }
+        }
+    }
+
+    long getHits() {
+        return hits;
+    }
+    long getMisses() {
+        return misses;
+    }
+    // whether a cached record covers this wram or hram byte
+    boolean isCode(int address) {
+        if (address >= 0xFF80) {
+            return hramCode[address - 0xFF80];
+        }
+        return wramCode[(address - 0xC000) & 0x1FFF];
+    }
+
+    void logStatistics() {
+        long lookups = hits + misses + uncached;
+        log.info(String.format("%d fetches: %d hits (%.2f%%), %d misses (%d fused), %d not cacheable, %d ram invalidations",
+                lookups, hits, lookups == 0 ? 0.0 : 100.0 * hits / lookups, misses, fused, uncached, invalidations));
+    }
+
+    //<editor-fold desc=" IMPLEMENTATION " defaultstate="collapsed">
+    private Instruction[] romBank(int bank) {
+        Instruction[] region = romInstructions[bank];
+        if (region == null) {
+            region = new Instruction[0x4000];
+            romInstructions[bank] = region;
+        }
+        return region;
+    }
+
+    private Instruction decode(final int pc) {
+        int opcode = mmu.readByte(pc);
+        int length = LENGTH[opcode];
+
+        if (opcode == 0xCB) {
+            int cbOpcode = mmu.readByte((pc + 1) & 0xFFFF);
+            return new Instruction(0xCB00 | cbOpcode, cbInstructions[cbOpcode], 0, length, (pc + 2) & 0xFFFF);
+        }
+
+        int immediate = 0;
+        for (int i = 1; i < length; i++) {
+            immediate |= mmu.readByte((pc + i) & 0xFFFF) << (8 * (i - 1));
+        }
+        return new Instruction(opcode, instructions[opcode], immediate, length, (pc + 1) & 0xFFFF);
+    }
+
+    // replaces first with a fused record if it starts a sequence the cpu has a handler for.
+    // available is how many bytes from pc are in the same region.
+    private Instruction fuse(Instruction first, int pc, int available) {
+        if (first.opcode >= 0x100 || first.length + 2 > available) {
+            return first;
+        }
+        Instruction second = decode((pc + first.length) & 0xFFFF);
+        if (second.opcode >= 0x100 || first.length + second.length > available) {
+            return first;
+        }
+
+        if (first.length + second.length < available) {
+            Instruction third = decode((pc + first.length + second.length) & 0xFFFF);
+            Runnable handler = fusedInstructions.get(sequence(first.opcode, second.opcode, third.opcode));
+            if (handler != null && first.length + second.length + third.length <= available) {
+                return fused(handler, first, second, third);
+            }
+        }
+        Runnable handler = fusedInstructions.get(sequence(first.opcode, second.opcode));
+        if (handler != null) {
+            return fused(handler, first, second);
+        }
+        return first;
+    }
+    private Instruction fused(Runnable handler, Instruction... parts) {
+        int immediate = 0;
+        int shift = 0;
+        int length = 0;
+        for (Instruction part : parts) {
+            immediate |= part.immediate << shift;
+            shift += 8 * (part.length - 1);
+            length += part.length;
+        }
+        fused++;
+        Instruction first = parts[0];
+        return new Instruction(first.opcode, handler, immediate, length, first.operandPc,
+                parts[parts.length - 1].endsBlock, parts.length);
+    }
+
+    private void invalidate(Instruction[] region, boolean[] code, int index) {
+        // any record starting less than MAX_LENGTH bytes back could cover this byte
+        int from = index;
+        int to = index + 1;
+        for (int start = Math.max(0, index - MAX_LENGTH + 1); start <= index; start++) {
+            Instruction instruction = region[start];
+            if (instruction != null && start + instruction.length > index) {
+                region[start] = null;
+                invalidations++;
+                from = Math.min(from, start);
+                to = Math.max(to, start + instruction.length);
+            }
+        }
+        // the removed records' bytes are no longer code unless a record that's still cached
+        // covers them too, otherwise every later write there would come back here for nothing.
+        Arrays.fill(code, from, to, false);
+        for (int start = Math.max(0, from - MAX_LENGTH + 1); start < to; start++) {
+            Instruction instruction = region[start];
+            if (instruction != null && start + instruction.length > from) {
+                Arrays.fill(code, Math.max(start, from), Math.min(start + instruction.length, to), true);
+            }
+        }
+    }
+    //</editor-fold>
+}
@@ -2,6 +2,7 @@ import helpers.Logger;
 
 import javax.swing.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -100,6 +101,9 @@ class Gpu extends JPanel {
             wndDisplayEnable = newWndDisplayEnable;
             bgAndWndTileDataSelect = newBgAndWndTileDataSelect;
             bgTileMapDisplaySelect = newBgTileMapDisplaySelect;
+            if (tallSpriteMode != newTallSpriteMode) {
+                spritesDirty = true; // sprites cover other lines now
+            }
             tallSpriteMode = newTallSpriteMode;
             spriteDisplayEnable = newSpriteDisplayEnable;
             bgWndDisplayPriority = newBgWndDisplayPriority;
@@ -142,6 +146,24 @@ class Gpu extends JPanel {
         VRAM_ACCESS
     }
 
+    // how long the gpu stays in each mode, indexed by Mode ordinal. same numbers as step()
+    private static final int[] MODE_CYCLES = { 204, 456, 80, 172 };
+
+    // a tile row's two bytes, low byte first, interleaved into 8 two bit colour numbers with
+    // the leftmost pixel in the top bits
+    private static final char[] INTERLEAVE = new char[256 * 256];
+    static {
+        for (int low = 0; low < 256; low++) {
+            for (int high = 0; high < 256; high++) {
+                int row = 0;
+                for (int bit = 7; bit >= 0; bit--) {
+                    row = row << 2 | (high >> bit & 1) << 1 | (low >> bit & 1);
+                }
+                INTERLEAVE[low << 8 | high] = (char) row;
+            }
+        }
+    }
+
     private Mode currentMode;
     private int modeClock;
     public int line;
@@ -150,18 +172,43 @@ class Gpu extends JPanel {
     public final LcdControl lcdControl = new LcdControl();
     public int scrollX;
     public int scrollY;
-    public int[] vram = new int[0x2000]; // 8192
-    private int[][][] tileset = new int[384][8][8];
+    public byte[] vram = new byte[0x2000]; // 8192
+    // colour numbers of every tile, 64 per tile a row at a time. tiles are decoded the first
+    // time a scanline uses them after their data was written, not on every write.
+    private final byte[] tiles = new byte[384 * 64];
+    private final boolean[] tileDirty = new boolean[384];
+    private final int[] tileVersion = new int[384]; // bumped on every write to the tile's data
+
+    // both 256x256 background maps, 0x9800 and 0x9C00, drawn out as colour numbers. each 8x8
+    // cell remembers the tile and the version of its data it was drawn from, and is drawn
+    // again when a scanline finds either changed: a new tile number in the map, new tile
+    // data, or the other tile data area selected in LCDC.
+    private final byte[][] backgroundMaps = new byte[2][256 * 256];
+    private final int[][] cellTile = new int[2][32 * 32];
+    private final int[][] cellVersion = new int[2][32 * 32];
+
+    // colour numbers of the background on the current line, for sprite priority
+    private final byte[] scanlineRow = new byte[160];
     private int[] screen = new int[160 * 144];
     public int[] backgroundPalette = {0, 3, 3, 3};
     public int[][] spritePalette = {{0, 3, 3, 3}, {0, 3, 3, 3}};
     public int[] palette = {0, 1, 2, 3};
     private List<Sprite> spriteList = new ArrayList<>();
 
+    // the sprites on each line, at most 10 like the hardware, highest priority first:
+    // smallest x, then lowest oam index. worked out again on the first line drawn after oam
+    // or the sprite size changed.
+    private static final int SPRITES_PER_LINE = 10;
+    private final int[][] spriteBins = new int[height][SPRITES_PER_LINE];
+    private final int[] spriteBinCount = new int[height];
+    private boolean spritesDirty = true;
+
     Gpu() {
         modeClock = 0;
         currentMode = Mode.VRAM_ACCESS;
         lcdControl.setLcdControl(0x91);
+        Arrays.fill(cellTile[0], -1);
+        Arrays.fill(cellTile[1], -1);
         for (int i = 0; i < 40; i++) {
             spriteList.add(new Sprite());
         }
@@ -227,34 +274,23 @@ class Gpu extends JPanel {
         lcdStatus.processLcdStatus();
     }
 
-    public void updateTile(int address) {
-
-        // get base address for this tile row
-        address &= 0x1FFE;
-
-        // work out which tile and row was updated
-        int tile = (address >> 4) & 511;
-        int y = (address >> 1) & 7;
-
-        int sx;
-        for (int i = 0; i < 8; i++) {
-
-            // find bit index for this pixel
-            sx = 1 << (7 - i);
-
-            int val = ((vram[address] & sx) != 0 ? 1 : 0) |
-                    ((vram[address + 1] & sx) != 0 ? 2 : 0);
-
-            log.debug("updating tile " + tile + " row " + y + " value " + val);
+    // cycles left before step() moves on to the next mode. the scheduler uses this so it
+    // only has to step the gpu when something is actually going to happen.
+    int cyclesUntilModeChange() {
+        return MODE_CYCLES[currentMode.ordinal()] - modeClock;
+    }
 
-            //update tileset
-            tileset[tile][y][i] = val;
-        }
+    // tile data at address was written
+    public void updateTile(int address) {
+        int tile = (address & 0x1FFF) >> 4;
+        tileDirty[tile] = true;
+        tileVersion[tile]++;
     }
 
     public void buildSprite(int address, int value) {
         int spriteNumber = address >> 2;
         if (spriteNumber < 40) {
+            spritesDirty = true;
             switch (address & 0b0000_0011) {
                 // Y-coordinate
                 case 0: spriteList.get(spriteNumber).y = value-16; break;
@@ -277,120 +313,202 @@ class Gpu extends JPanel {
 
     }
 
-    private void renderScanLine() {
+    // the whole sprite table at once, after an oam dma
+    public void buildSprites(byte[] oam) {
+        spritesDirty = true;
+        for (int spriteNumber = 0; spriteNumber < 40; spriteNumber++) {
+            Sprite sprite = spriteList.get(spriteNumber);
+            int address = spriteNumber * 4;
+            int options = oam[address + 3];
+            sprite.y = (oam[address] & 0xFF) - 16;
+            sprite.x = (oam[address + 1] & 0xFF) - 8;
+            sprite.tileNumber = oam[address + 2] & 0xFF;
+            sprite.isPalette1      = ((options & 0b0001_0000) != 0);
+            sprite.isXflip         = ((options & 0b0010_0000) != 0);
+            sprite.isYflip         = ((options & 0b0100_0000) != 0);
+            sprite.belowBackground = ((options & 0b1000_0000) != 0);
+        }
+    }
 
-        int[] scanlineRow = new int[160];
+    void renderScanLine() {
 
         if (lcdControl.bgWndDisplayPriority) {
             renderBackground(scanlineRow);
         }
+        else {
+            Arrays.fill(scanlineRow, (byte) 0);
+        }
 
         if (lcdControl.spriteDisplayEnable) {
             renderSprites(scanlineRow);
         }
+    }
 
-        log.info("Rendered scanline " + this.line);
+    // the oam indexes of the sprites drawn on a line, highest priority first
+    int[] spritesOnLine(int line) {
+        if (spritesDirty) {
+            binSprites();
+        }
+        return Arrays.copyOf(spriteBins[line], spriteBinCount[line]);
     }
 
-    private void renderSprites(int[] scanrow) {
+    private void renderSprites(byte[] scanrow) {
+        if (spritesDirty) {
+            binSprites();
+        }
         int spriteSize = lcdControl.getSpriteSize();
-
-        for(int i = 0; i < 40; i++) {
-            Sprite obj = spriteList.get(i);
-
-            // Check if this sprite falls on this scanline
-            if((obj.y <= line) && ((obj.y + lcdControl.getSpriteSize()) > line)) {
-
-                // Palette to use for this sprite
-                int[] pal = obj.isPalette1 ? spritePalette[1] : spritePalette[0];
-
-                // Where to render on the canvas
-                int canvasoffs = ((line * 160) + obj.x);
-
-                // Data for this line of the sprite
-                int[] tilerow;
-
-                // If the sprite is Y-flipped,
-                // use the opposite side of the tile
-                if(obj.isYflip) {
-                    tilerow = tileset[obj.tileNumber][spriteSize - 1 - (line - obj.y)];
-                }
-                else {
-                    tilerow = tileset[obj.tileNumber][line - obj.y];
-                }
-
-                int color;
-
-                for(int x = 0; x < 8; x++)
-                {
-                    // If this pixel is still on-screen, AND
-                    // if it's not colour 0 (transparent), AND
-                    // if this sprite has priority OR shows under the bg
-                    // then render the pixel
-                    if(     (((obj.x + x) >= 0) && ((obj.x + x) < 160)) &&
-                            //(tilerow[x] != 0) &&
-                            (!obj.belowBackground || scanrow[obj.x + x] <= 0)
-                    ) {
-                        // If the sprite is X-flipped,
-                        // write pixels in reverse order
-                        if (obj.isXflip){
-                            if (tilerow[(7-x)] != 0){//<<-- this
-                                color = pal[tilerow[(7-x)]];
-                                screen[canvasoffs] = color;
-                            }
-                        }else{
-                            if (tilerow[x] != 0){ //<<-- this
-                                color = pal[tilerow[x]];
-                                screen[canvasoffs] = color;
-                            }
+        int[] bin = spriteBins[line];
+
+        // lowest priority first, so the sprite with priority ends up on top
+        for(int i = spriteBinCount[line] - 1; i >= 0; i--) {
+            Sprite obj = spriteList.get(bin[i]);
+            // Palette to use for this sprite
+            int[] pal = obj.isPalette1 ? spritePalette[1] : spritePalette[0];
+
+            // Where to render on the canvas
+            int canvasoffs = ((line * 160) + obj.x);
+
+            // If the sprite is Y-flipped,
+            // use the opposite side of the tile
+            int row = obj.isYflip ? spriteSize - 1 - (line - obj.y) : line - obj.y;
+
+            // 8x16 sprites are an even tile and the odd one after it
+            int tile = spriteSize == 16 ? (obj.tileNumber & 0xFE) + (row >> 3) : obj.tileNumber;
+
+            // Data for this line of the sprite
+            int tilerow = tileRow(tile, row & 7);
+
+            int color;
+
+            for(int x = 0; x < 8; x++)
+            {
+                // If this pixel is still on-screen, AND
+                // if it's not colour 0 (transparent), AND
+                // if this sprite has priority OR shows under the bg
+                // then render the pixel
+                if(     (((obj.x + x) >= 0) && ((obj.x + x) < 160)) &&
+                        //(tilerow[x] != 0) &&
+                        (!obj.belowBackground || scanrow[obj.x + x] <= 0)
+                ) {
+                    // If the sprite is X-flipped,
+                    // write pixels in reverse order
+                    if (obj.isXflip){
+                        if (tiles[tilerow + (7-x)] != 0){//<<-- this
+                            color = pal[tiles[tilerow + (7-x)]];
+                            screen[canvasoffs] = color;
+                        }
+                    }else{
+                        if (tiles[tilerow + x] != 0){ //<<-- this
+                            color = pal[tiles[tilerow + x]];
+                            screen[canvasoffs] = color;
                         }
                     }
-
-                    canvasoffs++;
                 }
+
+                canvasoffs++;
             }
         }
     }
 
-    private void renderBackground(int[] scanlineRow) {
-        boolean bgmap = lcdControl.bgTileMapDisplaySelect;
-        boolean bgtile = !lcdControl.bgAndWndTileDataSelect;
+    private void renderBackground(byte[] scanlineRow) {
+        int map = lcdControl.bgTileMapDisplaySelect ? 1 : 0;
+        byte[] bitmap = backgroundMaps[map];
 
-        int mapoffset = bgmap ? 0x1C00 : 0x1800;  /* 0x1800; */
-        mapoffset += (((line + scrollY) & 0b1111_1111) >> 3) << 5;
+        int y = (line + scrollY) & 0xFF;
+        updateCells(map, y >> 3, scrollX >> 3);
 
-        int lineoffset = (scrollX >> 3);
-
-        int y = (line + scrollY) & 7;
-        int x = (scrollX & 7);
+        // the line wraps around the right edge of the map at most once
+        int row = y * 256;
+        int first = Math.min(160, 256 - scrollX);
+        System.arraycopy(bitmap, row + scrollX, scanlineRow, 0, first);
+        if (first < 160) {
+            System.arraycopy(bitmap, row, scanlineRow, first, 160 - first);
+        }
 
         int canvasoffset = line * 160;
+        for (int i = 0; i < 160; i++) {
+            screen[canvasoffset + i] = backgroundPalette[scanlineRow[i]];
+        }
+    }
 
-        int colorint;
-        int tile = vram[mapoffset + lineoffset];
-
-        if (bgtile && (tile < 128)) {
-            tile += 256;
+    //<editor-fold desc=" IMPLEMENTATION " defaultstate="collapsed">
+    // the hardware picks the first 10 sprites in oam that are on a line, so they're binned
+    // in oam order and then sorted into priority order
+    private void binSprites() {
+        spritesDirty = false;
+        Arrays.fill(spriteBinCount, 0);
+        int spriteSize = lcdControl.getSpriteSize();
+        for (int i = 0; i < 40; i++) {
+            Sprite obj = spriteList.get(i);
+            int last = Math.min(height - 1, obj.y + spriteSize - 1);
+            for (int y = Math.max(0, obj.y); y <= last; y++) {
+                if (spriteBinCount[y] < SPRITES_PER_LINE) {
+                    spriteBins[y][spriteBinCount[y]++] = i;
+                }
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            int[] bin = spriteBins[y];
+            for (int i = 1; i < spriteBinCount[y]; i++) {
+                int sprite = bin[i];
+                int x = spriteList.get(sprite).x;
+                int j = i - 1;
+                // oam order already breaks ties, only a smaller x moves a sprite forward
+                while (j >= 0 && spriteList.get(bin[j]).x > x) {
+                    bin[j + 1] = bin[j];
+                    j--;
+                }
+                bin[j + 1] = sprite;
+            }
         }
+    }
 
-        for (int i = 0; i < 160; i++) {
-            colorint = tileset[tile][y][x];
+    // draws the cells of a row of the map that a line starting at cell firstX goes through,
+    // if they're out of date
+    private void updateCells(final int map, final int cellY, final int firstX) {
+        boolean signedTiles = !lcdControl.bgAndWndTileDataSelect;
+        int mapoffset = (map == 1 ? 0x1C00 : 0x1800) + (cellY << 5);
+        for (int i = 0; i <= 20; i++) {
+            int cell = (cellY << 5) | ((firstX + i) & 31);
+            int tile = vram[mapoffset + (cell & 31)] & 0xFF;
+            if (signedTiles && (tile < 128)) {
+                tile += 256;
+            }
+            if (cellTile[map][cell] != tile || cellVersion[map][cell] != tileVersion[tile]) {
+                drawCell(map, cell, tile);
+            }
+        }
+    }
 
-            screen[canvasoffset] = backgroundPalette[colorint];
-            canvasoffset++;
+    private void drawCell(final int map, final int cell, final int tile) {
+        cellTile[map][cell] = tile;
+        cellVersion[map][cell] = tileVersion[tile];
+        int source = tileRow(tile, 0);
+        int target = (cell >> 5) * 8 * 256 + (cell & 31) * 8;
+        for (int y = 0; y < 8; y++, source += 8, target += 256) {
+            System.arraycopy(tiles, source, backgroundMaps[map], target, 8);
+        }
+    }
 
-            scanlineRow[i] = colorint;
+    // where row y of tile starts in tiles, decoding the tile first if its data changed
+    private int tileRow(final int tile, final int y) {
+        if (tileDirty[tile]) {
+            decodeTile(tile);
+        }
+        return tile * 64 + y * 8;
+    }
 
-            x++;
-            if (x == 8) {
-                x = 0;
-                lineoffset = (lineoffset + 1) & 31;
-                tile = vram[mapoffset + lineoffset];
-                if (bgtile && (tile < 128)) {
-                    tile += 256;
-                }
+    private void decodeTile(final int tile) {
+        tileDirty[tile] = false;
+        int address = tile * 16;
+        int pixel = tile * 64;
+        for (int y = 0; y < 8; y++, address += 2) {
+            int row = INTERLEAVE[(vram[address] & 0xFF) << 8 | (vram[address + 1] & 0xFF)];
+            for (int shift = 14; shift >= 0; shift -= 2) {
+                tiles[pixel++] = (byte) (row >> shift & 3);
             }
         }
     }
+    //</editor-fold>
 
 }
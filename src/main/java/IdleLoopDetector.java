@@ -0,0 +1,224 @@
+import helpers.Logger;
+
+/**
+ * File created on 10/18/2026.
+ *
+ * Finds busy-wait loops and skips the iterations that can't possibly see anything new.
+ * Games wait for vblank or for a flag the vblank handler sets with loops like
+ *     LDH A,(44) / CP 90 / JR NZ,-6
+ *     LD A,(C0F0) / AND A / JR Z,-6
+ * that don't change anything but A and the flags. Until the timer or gpu has an event
+ * (or an interrupt handler runs, which needs one of those events), every trip around such
+ * a loop reads the same values and ends in the same state, so running it is wasted time.
+ *
+ * The cpu calls loopedBack() whenever a jump lands on an address at or before itself.
+ * A loop is only skipped when all of this holds:
+ *   - the body from the jump target up to and including the jump is straight-line code,
+ *     ends in a jump back to its start, and only uses opcodes from IDLE_SAFE: loads into A
+ *     and alu ops that only change A and the flags, BIT, and NOPs. no writes, no other
+ *     registers, and no reads of the timer registers or JOYP, which change without an event.
+ *   - the last three trips around it ended with the same A and flags
+ *   - the last two trips took exactly as many cycles as each other. that's what one trip
+ *     costs, measured rather than looked up, so it's whatever the handlers actually
+ *     consume. a trip that an interrupt handler or code outside the body ran in doesn't
+ *     match the next one.
+ *   - no event ran during the last trip. if LY moved on right after the loop read it, the
+ *     same A came from a stale value and the next trip may well see something new
+ * It then jumps the clock ahead by as many whole trips as fit before the next event,
+ * and leaves the cpu at the top of the loop to run the next one for real. That's also
+ * the check that the skip was right: the loop reads its registers again and carries on or
+ * exits exactly like it would have.
+ *
+ * Switched per cpu through its constructor, which defaults to on unless -noidle was given.
+ * The skipped cycles per frame are counted for logStatistics().
+ */
+final class IdleLoopDetector {
+    private Logger log = new Logger("IDL", Logger.Level.INFO);
+
+    // longest loop body it looks at, in bytes
+    static final int MAX_BODY = 16;
+
+    // opcodes that only read memory and change A and the flags. jumps are handled separately.
+    static final boolean[] IDLE_SAFE = new boolean[0x100];
+    static {
+        IDLE_SAFE[0x00] = true;                                 // NOP
+        for (int opcode = 0x78; opcode <= 0x7F; opcode++) {     // LD A,r and LD A,(HL)
+            IDLE_SAFE[opcode] = true;
+        }
+        for (int opcode = 0x80; opcode <= 0xBF; opcode++) {     // ADD..CP A,r
+            IDLE_SAFE[opcode] = true;
+        }
+        for (int opcode : new int[] {
+                0x0A, 0x1A, 0x3E, 0xF0, 0xF2, 0xFA,             // LD A,(BC)/(DE)/n/(n)/(C)/(nn)
+                0xC6, 0xCE, 0xD6, 0xDE, 0xE6, 0xEE, 0xF6, 0xFE, // ADD..CP A,n
+                0x07, 0x0F, 0x17, 0x1F, 0x27, 0x2F, 0x37, 0x3F, // RLCA, RRCA, RLA, RRA, DAA, CPL, SCF, CCF
+                0xCB }) {                                       // checked again, see cbIdleSafe()
+            IDLE_SAFE[opcode] = true;
+        }
+    }
+
+    private static final int FRAME_CYCLES = 70224;
+
+    private enum Body {
+        UNKNOWN,
+        IDLE,     // only does things that can't change anything but A and the flags
+        NOT_IDLE
+    }
+
+    private final Cpu cpu;
+    private final MemoryManager mmu;
+    private final Scheduler scheduler;
+
+    // the loop the last back jump landed in, and the state it arrived with
+    private int lastHead = -1;
+    private int lastEnd = -1;
+    private int lastA;
+    private int lastFlags;
+    private long lastArrival;
+    private long lastTrip = -1; // cycles the last steady trip took, -1 if there wasn't one
+    private Body body = Body.UNKNOWN; // of lastHead
+
+    private long loopsSkipped = 0;
+    private long cyclesSkipped = 0;
+    private long frame = 0;
+    private long cyclesSkippedThisFrame = 0;
+    private long cyclesSkippedLastFrame = 0;
+    private long mostCyclesSkippedInAFrame = 0;
+
+    IdleLoopDetector(Cpu cpu, MemoryManager mmu, Scheduler scheduler) {
+        this.cpu = cpu;
+        this.mmu = mmu;
+        this.scheduler = scheduler;
+    }
+
+    // a jump from inside [head, end) just landed on head. a and flags are the registers now.
+    void loopedBack(final int head, final int end, final int a, final int flags) {
+        long trip = -1;
+        if (head != lastHead || end != lastEnd) {
+            lastHead = head;
+            lastEnd = end;
+            body = Body.UNKNOWN;
+        }
+        else if (a == lastA && flags == lastFlags) {
+            trip = scheduler.now - lastArrival;
+            if (body == Body.UNKNOWN) {
+                body = analyse(head, end) ? Body.IDLE : Body.NOT_IDLE;
+            }
+            if (body == Body.IDLE && trip == lastTrip && scheduler.lastEventRun <= lastArrival) {
+                skip((int) trip);
+            }
+            else if (body == Body.IDLE && lastTrip != -1 && trip != lastTrip) {
+                // something else ran in between, maybe a bank switch. look at the code again.
+                body = Body.UNKNOWN;
+            }
+        }
+        lastTrip = trip;
+        lastA = a;
+        lastFlags = flags;
+        lastArrival = scheduler.now;
+    }
+
+    long getCyclesSkippedLastFrame() {
+        countFrame();
+        return cyclesSkippedLastFrame;
+    }
+
+    void logStatistics() {
+        countFrame();
+        log.info(String.format("%d idle loops skipped, %d cycles (%.1f%% of %d frames), at most %d cycles in a frame",
+                loopsSkipped, cyclesSkipped, 100.0 * cyclesSkipped / Math.max(1, scheduler.now), frame,
+                mostCyclesSkippedInAFrame));
+    }
+
+    //<editor-fold desc=" IMPLEMENTATION " defaultstate="collapsed">
+    private void skip(final int iteration) {
+        if (InterruptManager.getInstance().isInterruptPending()) {
+            return; // the cpu jumps to the handler on the very next step
+        }
+        // whole iterations only, and none that would end on or after the next event
+        int available = scheduler.cyclesUntilNextEvent(1) - 1;
+        int cycles = available / iteration * iteration;
+        if (cycles == 0) {
+            return;
+        }
+        countFrame();
+        scheduler.advance(cycles);
+        loopsSkipped++;
+        cyclesSkipped += cycles;
+        cyclesSkippedThisFrame += cycles;
+    }
+
+    private void countFrame() {
+        long now = scheduler.now / FRAME_CYCLES;
+        if (now != frame) {
+            cyclesSkippedLastFrame = now == frame + 1 ? cyclesSkippedThisFrame : 0;
+            mostCyclesSkippedInAFrame = Math.max(mostCyclesSkippedInAFrame, cyclesSkippedThisFrame);
+            cyclesSkippedThisFrame = 0;
+            frame = now;
+        }
+    }
+
+    // true if going around the loop can't change anything but A and the flags
+    private boolean analyse(final int head, final int end) {
+        if (end - head > MAX_BODY || end > 0xFFFF) {
+            return false;
+        }
+        int pc = head;
+        while (pc < end) {
+            int opcode = mmu.readByte(pc);
+            int next = pc + DecodeCache.LENGTH[opcode];
+            if (next == end) {
+                // the last one has to be the jump that got us here
+                return jumpsTo(opcode, pc, head);
+            }
+            if (!IDLE_SAFE[opcode] || !readsIdleSafe(opcode, pc)) {
+                return false;
+            }
+            if (opcode == 0xCB && !cbIdleSafe(mmu.readByte(pc + 1))) {
+                return false;
+            }
+            pc = next;
+        }
+        return false;
+    }
+
+    // BIT b,r, and the rotates and shifts on A
+    private static boolean cbIdleSafe(int cbOpcode) {
+        return (cbOpcode & 0xC0) == 0x40 || (cbOpcode < 0x40 && (cbOpcode & 7) == 7);
+    }
+
+    // the timer registers change on every read without an event, and JOYP changes whenever the
+    // ui thread sees a key, so a loop on any of them isn't idle
+    private boolean readsIdleSafe(int opcode, int pc) {
+        int address;
+        switch (opcode) {
+            case 0x0A: address = cpu.getBC(); break;
+            case 0x1A: address = cpu.getDE(); break;
+            case 0x7E: case 0x86: case 0x8E: case 0x96: case 0x9E: case 0xA6: case 0xAE: case 0xB6: case 0xBE:
+                address = cpu.getHL();
+                break;
+            case 0xF0: address = 0xFF00 | mmu.readByte(pc + 1); break;
+            case 0xF2: address = 0xFF00 | (cpu.getBC() & 0xFF); break;
+            case 0xFA: address = mmu.readByte(pc + 1) | mmu.readByte(pc + 2) << 8; break;
+            case 0xCB:
+                if ((mmu.readByte(pc + 1) & 7) != 6) return true;
+                address = cpu.getHL();
+                break;
+            default:
+                return true;
+        }
+        return address != 0xFF00 && (address < 0xFF04 || address > 0xFF07);
+    }
+
+    private boolean jumpsTo(int opcode, int pc, int head) {
+        switch (opcode) {
+            case 0x18: case 0x20: case 0x28: case 0x30: case 0x38: // JR
+                return ((pc + 2 + (byte) mmu.readByte(pc + 1)) & 0xFFFF) == head;
+            case 0xC2: case 0xC3: case 0xCA: case 0xD2: case 0xDA: // JP
+                return (mmu.readByte(pc + 1) | mmu.readByte(pc + 2) << 8) == head;
+            default:
+                return false;
+        }
+    }
+    //</editor-fold>
+}
@@ -1,7 +1,7 @@
 import helpers.Logger;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Created by Pablo Canseco on 4/10/2018.
@@ -25,39 +25,18 @@ public class InterruptManager {
         }
     }
 
-    public class Interrupt {
-        public final String name;
-        private boolean isRaised;
-        private boolean isEnabled;
+    // indexed by bit number, which is also the priority order: vblank first, joypad last
+    private static final InterruptTypes[] BY_BIT = {
+            InterruptTypes.VBLANK,
+            InterruptTypes.LCDC_STATUS,
+            InterruptTypes.TIMER_OVERFLOW,
+            InterruptTypes.SERIAL_TRANSFER_COMPLETE,
+            InterruptTypes.JOYPAD_INPUT
+    };
 
-        private Interrupt(String name) {
-            this.name = name;
-            this.isRaised = false;
-            this.isEnabled = false;
-        }
-        //<editor-fold desc=" IMPLEMENTATION " default-state="collapsed">
-        public boolean isRaised() {
-            return isRaised;
-        }
-        public boolean isEnabled() {
-            return isEnabled;
-        }
-        public void clear() {
-            this.isRaised = false;
-        }
-        public void disable() {
-            this.isEnabled = false;
-        }
-        public void raise() {
-            this.isRaised = true;
-        }
-        public void enable() {
-            this.isEnabled = true;
-        }
-        //</editor-fold>
-    }
-
-    private Map<InterruptTypes, Interrupt> ints = new HashMap<>();
+    // IF and IE, bits 0-4 only. the cpu checks these every step, so they're plain ints.
+    private int raised = 0;
+    private int enabled = 0;
     private boolean masterEnable = false;
     private int upper3bitsForEnableReg = 0;
     private int upper3bitsForFlagReg = 0;
@@ -75,9 +54,6 @@ public class InterruptManager {
     }
 
     private InterruptManager() {
-        for (InterruptTypes i : InterruptTypes.values()) {
-            ints.put(i, new Interrupt(i.name()));
-        }
     }
 
     public void masterEnable() {
@@ -92,30 +68,51 @@ public class InterruptManager {
         return this.masterEnable;
     }
 
-    public Map<InterruptTypes, Interrupt> getRaisedInterrupts() {
-        Map<InterruptTypes, Interrupt> raisedInts = new HashMap<>();
-        for (Map.Entry<InterruptTypes, Interrupt> e : this.ints.entrySet()) {
-            if (e.getValue().isRaised) {
-                raisedInts.put(e.getKey(), e.getValue());
+    // raised interrupts in priority order, for tests and debugging. the cpu uses getNextInterrupt().
+    public List<InterruptTypes> getRaisedInterrupts() {
+        List<InterruptTypes> raisedInts = new ArrayList<>();
+        for (InterruptTypes i : BY_BIT) {
+            if ((raised & i.bit) != 0) {
+                raisedInts.add(i);
             }
         }
         return raisedInts;
     }
 
+    // any interrupt raised, enabled or not. that's enough to wake the cpu from HALT.
+    public boolean isAnyInterruptRaised() {
+        return raised != 0;
+    }
+
+    // true if processing interrupts right now would jump to a handler.
+    public boolean isInterruptPending() {
+        return masterEnable && (raised & enabled) != 0;
+    }
+
+    // the interrupt the cpu should jump to right now, or null if there's none. when several
+    // are pending the lowest bit wins, same as the hardware.
+    public InterruptTypes getNextInterrupt() {
+        int pending = raised & enabled;
+        if (!masterEnable || pending == 0) {
+            return null;
+        }
+        return BY_BIT[Integer.numberOfTrailingZeros(pending)];
+    }
+
     public void clearInterrupt(InterruptTypes i) {
-        this.ints.get(i).clear();
+        raised &= ~i.bit;
     }
 
     public void raiseInterrupt(InterruptTypes i) {
-        this.ints.get(i).raise();
+        raised |= i.bit;
     }
 
     public void enableInterrupt(InterruptTypes i) {
-        this.ints.get(i).enable();
+        enabled |= i.bit;
     }
 
     public void disableInterrupt(InterruptTypes i) {
-        this.ints.get(i).disable();
+        enabled &= ~i.bit;
     }
 
     public void raiseInterrupt(int registerValue) {
@@ -124,17 +121,7 @@ public class InterruptManager {
             upper3bitsForFlagReg = registerValue & 0b1110_0000;
             registerValue &= 0b0001_1111;
         }
-
-        for (InterruptTypes i : InterruptTypes.values()) {
-            if ((registerValue / i.bit) == 1) {
-                log.info("Raising " + i.name());
-                ints.get(i).raise();
-            }
-            else {
-                ints.get(i).clear();
-            }
-            registerValue %= i.bit;
-        }
+        raised = registerValue;
     }
 
     public void enableInterrupt(int registerValue) {
@@ -143,38 +130,16 @@ public class InterruptManager {
             upper3bitsForEnableReg = registerValue & 0b1110_0000;
             registerValue &= 0b0001_1111;
         }
-
-        for (InterruptTypes i : InterruptTypes.values()) {
-            if ((registerValue / i.bit) == 1) {
-                log.info("Enabling " + i.name());
-                ints.get(i).enable();
-            }
-            else {
-                ints.get(i).clear();
-                ints.get(i).disable();
-            }
-            registerValue %= i.bit;
-        }
+        enabled = registerValue;
+        raised &= registerValue; // disabling an interrupt also drops it if it was raised
     }
 
     public int getInterruptsEnabled() {
-        int i = 0;
-        for (InterruptTypes interrupt : InterruptTypes.values()) {
-            if (ints.get(interrupt).isEnabled()) {
-                i |= interrupt.bit;
-            }
-        }
-        return i | upper3bitsForEnableReg;
+        return enabled | upper3bitsForEnableReg;
     }
 
     public int getInterruptsRaised() {
-        int i = 0;
-        for (InterruptTypes interrupt : InterruptTypes.values()) {
-            if (ints.get(interrupt).isRaised()) {
-                i |= interrupt.bit;
-            }
-        }
-        return i | upper3bitsForFlagReg;
+        return raised | upper3bitsForFlagReg;
     }
 
 }
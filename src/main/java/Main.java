@@ -10,6 +10,11 @@ import java.util.List;
 public class Main {
 
     public static boolean skipBootrom;
+    // defaults for each Cpu, see Cpu(MemoryManager, Gpu, boolean, boolean)
+    public static boolean fuseInstructions = true;
+    public static boolean idleLoopSkipping = true;
+    public static boolean rtcWallClock;
+    public static int saveInterval = 1000;
 
     public static void main(String[] args) {
         Logger log = new Logger("Main", Logger.Level.DEBUG);
@@ -17,12 +22,23 @@ public class Main {
         // process commandline arguments
         List<String> argsList = Arrays.asList(args);
         skipBootrom = argsList.contains("-sb") || argsList.contains("--skip-bootrom");
+        fuseInstructions = !(argsList.contains("-nofuse") || argsList.contains("--no-fusion"));
+        idleLoopSkipping = !(argsList.contains("-noidle") || argsList.contains("--no-idle-skip"));
+        rtcWallClock = argsList.contains("-rtcwall") || argsList.contains("--rtc-wall-clock");
+        int saveIntervalIndex = Math.max(argsList.indexOf("-si"), argsList.indexOf("--save-interval"));
+        if (saveIntervalIndex >= 0 && saveIntervalIndex + 1 < args.length) {
+            saveInterval = Integer.parseInt(args[saveIntervalIndex + 1]);
+        }
         boolean cartParseOnly = argsList.contains("-cpo") || argsList.contains("--cart-parse-only");
         boolean disableAcceleration = argsList.contains("-noaccel") || argsList.contains("--disable-hw-acceleration");
 
         if (argsList.contains("-h") || argsList.contains("-help") || argsList.contains("--help")) {
             System.out.println("USAGE: java Main [options]");
             System.out.println("\t -sb      (--skip-bootrom) \t\t\t\tBegin executing the game immediately, bypassing the Nintendo logo scroll.");
+            System.out.println("\t -nofuse  (--no-fusion) \t\t\t\tRun common instruction sequences one instruction at a time.");
+            System.out.println("\t -noidle  (--no-idle-skip) \t\t\t\tRun busy-wait loops in full instead of skipping ahead. Use for roms that misbehave with it.");
+            System.out.println("\t -rtcwall (--rtc-wall-clock) \t\t\tRun the cartridge clock on the host's clock instead of the emulated one.");
+            System.out.println("\t -si <ms> (--save-interval <ms>) \t\tHow often battery backed ram is written to the .sav file. Defaults to 1000.");
             System.out.println("\t -noaccel (--disable-hw-acceleration) \tDisables the use of Java2D OpenGL.");
             return;
         }
@@ -30,6 +46,10 @@ public class Main {
         // log command line argument values:
         log.info("======= CMDLINE PARAMS =======");
         log.info("Skip Bootrom   set to " + skipBootrom);
+        log.info("Fusion         set to " + fuseInstructions);
+        log.info("Idle Skipping  set to " + idleLoopSkipping);
+        log.info("RTC Wall Clock set to " + rtcWallClock);
+        log.info("Save Interval  set to " + saveInterval);
         log.info("CartParseOnly  set to " + cartParseOnly);
         log.info("disableAcceleration set to " + disableAcceleration);
         log.info("==============================");
@@ -120,6 +140,22 @@ public class Main {
         Gpu gpu = new Gpu();
         MemoryManager mmu = new MemoryManager(mbc, gpu);
         Cpu cpu = new Cpu(mmu, gpu);
+        mbc.openSave(saveInterval);
+
+        // a single hook so the steps happen in order: the cpu has to be stopped before the last
+        // save is flushed and the rom is let go, or it could still be writing cartridge ram or
+        // switching banks while they go away
+        Thread emulation = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            cpu.paused = true;
+            try {
+                emulation.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            cpu.logStatistics();
+            mbc.close();
+        }));
 
         // go
         cpu.main();
@@ -0,0 +1,25 @@
+/**
+ * File created on 10/18/2026.
+ *
+ * A cartridge's memory bank controller: what the cpu sees at 0x0000-0x7FFF and 0xA000-0xBFFF.
+ * MbcManager picks the implementation once from the cartridge type, so the call sites only
+ * ever see one class and the jit can inline it.
+ *
+ * Implementations keep where the selected rom and ram banks start in fields that only
+ * change on a bank switch write, so a read is an add and a load.
+ */
+interface Mbc {
+
+    // 0x0000-0x7FFF and 0xA000-0xBFFF
+    int read(int address);
+    void write(int address, int value);
+
+    // the bank mapped at 0x4000-0x7FFF
+    int getRomBank();
+
+    // the ram the memory manager can map straight into its page table at 0xA000-0xBFFF, and
+    // where the selected bank starts in it. null when accesses there have to go through
+    // read() and write(): no ram, ram disabled, or something other than plain ram mapped.
+    byte[] getMappedRam();
+    int getRamBankOffset();
+}
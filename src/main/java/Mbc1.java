@@ -0,0 +1,106 @@
+import java.nio.ByteBuffer;
+
+/**
+ * File created on 10/18/2026.
+ *
+ * MBC1: up to 2MB of rom and 32KB of ram. The two bits written to 0x4000-0x5FFF go to the
+ * rom bank in rom mode and select the ram bank in ram mode.
+ */
+final class Mbc1 implements Mbc {
+    private final ByteBuffer rom;
+    private final int romBankMask;
+    private final byte[] ram;
+
+    private int romBankSelected = 1;
+    private int ramBankSelected = 0;
+    private boolean ramEnabled = false;
+    private boolean isRomMode = true;
+
+    // added to 0x4000-0x7FFF and 0xA000-0xBFFF addresses to index rom and ram
+    private int romOffset;
+    private int ramOffset;
+
+    Mbc1(ByteBuffer rom, byte[] ram) {
+        this.rom = rom;
+        this.romBankMask = Math.max(1, rom.limit() / 0x4000) - 1;
+        this.ram = ram;
+        updateOffsets();
+    }
+
+    @Override
+    public int read(final int address) {
+        if (address < 0x4000) {
+            return rom.get(address) & 0xFF;
+        }
+        else if (address < 0x8000) {
+            return rom.get(romOffset + address) & 0xFF;
+        }
+        else if (!ramEnabled || ram.length == 0) {
+            return 0xFF;
+        }
+        return ram[(ramOffset + address) & (ram.length - 1)] & 0xFF;
+    }
+
+    @Override
+    public void write(final int address, final int value) {
+        if (address <= 0x1FFF) {
+            // lower 4 bits == 0xA means enable. Anything else disable.
+            ramEnabled = ((value & 0b0000_1111) == 0xA);
+        }
+        else if (address <= 0x3FFF) {
+            // write the lower 5 bits of romBank selection
+            romBankSelected = (value & 0b0001_1111);
+            if (romBankSelected == 0) {
+                romBankSelected++;
+            }
+        }
+        else if (address <= 0x5FFF) {
+            if (isRomMode) {
+                romBankSelected &= 0b0001_1111; // clear bits 5 and 6
+                romBankSelected |= (value & 0b0000_0011) << 5; // replace bits 1 and 2 from value
+                if (romBankSelected == 0 ||
+                        romBankSelected == 0x20 ||
+                        romBankSelected == 0x40 ||
+                        romBankSelected == 0x60) {
+                    romBankSelected++;
+                }
+            }
+            else {
+                ramBankSelected = (value & 0b0000_0011); // select a bank from 0 to 3
+            }
+        }
+        else if (address <= 0x7FFF) {
+            isRomMode = (value == 0); // 0=rom, 1=ram
+            if (isRomMode) {
+                ramBankSelected = 0;
+            }
+            else {
+                romBankSelected &= 0b0001_1111;
+            }
+        }
+        else if (ramEnabled && ram.length != 0) {
+            ram[(ramOffset + address) & (ram.length - 1)] = (byte) value;
+        }
+        updateOffsets();
+    }
+
+    @Override
+    public int getRomBank() {
+        return romBankSelected & romBankMask;
+    }
+
+    @Override
+    public byte[] getMappedRam() {
+        return ramEnabled && ram.length != 0 ? ram : null;
+    }
+
+    @Override
+    public int getRamBankOffset() {
+        return ramBankSelected * 0x2000;
+    }
+
+    private void updateOffsets() {
+        romOffset = getRomBank() * 0x4000 - 0x4000;
+        ramOffset = getRamBankOffset() - 0xA000;
+    }
+}
@@ -0,0 +1,83 @@
+import java.nio.ByteBuffer;
+
+/**
+ * File created on 10/18/2026.
+ *
+ * MBC2: up to 256KB of rom, and 512 half-bytes of ram built into the controller. Bit 8 of
+ * the address decides whether a write to 0x0000-0x3FFF enables ram or selects the rom bank.
+ * The ram's upper nibble isn't there and reads back as 1s, so the page table can't map it.
+ */
+final class Mbc2 implements Mbc {
+    private final ByteBuffer rom;
+    private final int romBankMask;
+    private final byte[] ram = new byte[0x200];
+
+    private int romBankSelected = 1;
+    private boolean ramEnabled = false;
+
+    // added to 0x4000-0x7FFF addresses to index rom
+    private int romOffset;
+
+    Mbc2(ByteBuffer rom) {
+        this.rom = rom;
+        this.romBankMask = Math.max(1, rom.limit() / 0x4000) - 1;
+        updateOffsets();
+    }
+
+    // for the battery, the controller's ram doesn't show up in the cartridge header
+    byte[] getRam() {
+        return ram;
+    }
+
+    @Override
+    public int read(final int address) {
+        if (address < 0x4000) {
+            return rom.get(address) & 0xFF;
+        }
+        else if (address < 0x8000) {
+            return rom.get(romOffset + address) & 0xFF;
+        }
+        else if (!ramEnabled) {
+            return 0xFF;
+        }
+        return ram[address & 0x1FF] | 0xF0;
+    }
+
+    @Override
+    public void write(final int address, final int value) {
+        if (address <= 0x3FFF) {
+            if ((address & 0x100) == 0) {
+                ramEnabled = ((value & 0b0000_1111) == 0xA);
+            }
+            else {
+                romBankSelected = value & 0b0000_1111;
+                if (romBankSelected == 0) {
+                    romBankSelected++;
+                }
+                updateOffsets();
+            }
+        }
+        else if (address >= 0xA000 && ramEnabled) {
+            ram[address & 0x1FF] = (byte) (value & 0b0000_1111);
+        }
+    }
+
+    @Override
+    public int getRomBank() {
+        return romBankSelected & romBankMask;
+    }
+
+    @Override
+    public byte[] getMappedRam() {
+        return null;
+    }
+
+    @Override
+    public int getRamBankOffset() {
+        return 0;
+    }
+
+    private void updateOffsets() {
+        romOffset = getRomBank() * 0x4000 - 0x4000;
+    }
+}
@@ -0,0 +1,106 @@
+import java.nio.ByteBuffer;
+
+/**
+ * File created on 10/18/2026.
+ *
+ * MBC3: up to 2MB of rom, 32KB of ram, and on some carts a real time clock whose registers
+ * are selected into 0xA000-0xBFFF in place of a ram bank. Without a clock those read back
+ * as 0xFF and writes to them are dropped.
+ */
+final class Mbc3 implements Mbc {
+    private final ByteBuffer rom;
+    private final int romBankMask;
+    private final byte[] ram;
+    private final RealTimeClock clock; // null if the cart has none
+
+    private int romBankSelected = 1;
+    private int ramBankSelected = 0; // 0x08-0x0C select a clock register instead
+    private boolean ramEnabled = false; // ram and clock
+
+    // added to 0x4000-0x7FFF and 0xA000-0xBFFF addresses to index rom and ram
+    private int romOffset;
+    private int ramOffset;
+
+    Mbc3(ByteBuffer rom, byte[] ram, RealTimeClock clock) {
+        this.rom = rom;
+        this.romBankMask = Math.max(1, rom.limit() / 0x4000) - 1;
+        this.ram = ram;
+        this.clock = clock;
+        updateOffsets();
+    }
+
+    @Override
+    public int read(final int address) {
+        if (address < 0x4000) {
+            return rom.get(address) & 0xFF;
+        }
+        else if (address < 0x8000) {
+            return rom.get(romOffset + address) & 0xFF;
+        }
+        else if (!ramEnabled) {
+            return 0xFF;
+        }
+        else if (ramBankSelected > 0x03) {
+            return clock != null && ramBankSelected >= 0x08 && ramBankSelected <= 0x0C
+                    ? clock.read(ramBankSelected - 0x08) : 0xFF;
+        }
+        else if (ram.length == 0) {
+            return 0xFF;
+        }
+        return ram[(ramOffset + address) & (ram.length - 1)] & 0xFF;
+    }
+
+    @Override
+    public void write(final int address, final int value) {
+        if (address <= 0x1FFF) {
+            ramEnabled = ((value & 0b0000_1111) == 0xA);
+        }
+        else if (address <= 0x3FFF) {
+            romBankSelected = value & 0b0111_1111;
+            if (romBankSelected == 0) {
+                romBankSelected++;
+            }
+            updateOffsets();
+        }
+        else if (address <= 0x5FFF) {
+            ramBankSelected = value & 0b0000_1111;
+            updateOffsets();
+        }
+        else if (address <= 0x7FFF) {
+            if (clock != null) {
+                clock.latch(value);
+            }
+        }
+        else if (!ramEnabled) {
+            return;
+        }
+        else if (ramBankSelected > 0x03) {
+            if (clock != null && ramBankSelected >= 0x08 && ramBankSelected <= 0x0C) {
+                clock.write(ramBankSelected - 0x08, value);
+            }
+        }
+        else if (ram.length != 0) {
+            ram[(ramOffset + address) & (ram.length - 1)] = (byte) value;
+        }
+    }
+
+    @Override
+    public int getRomBank() {
+        return romBankSelected & romBankMask;
+    }
+
+    @Override
+    public byte[] getMappedRam() {
+        return ramEnabled && ramBankSelected <= 0x03 && ram.length != 0 ? ram : null;
+    }
+
+    @Override
+    public int getRamBankOffset() {
+        return (ramBankSelected & 0x03) * 0x2000;
+    }
+
+    private void updateOffsets() {
+        romOffset = getRomBank() * 0x4000 - 0x4000;
+        ramOffset = getRamBankOffset() - 0xA000;
+    }
+}
@@ -0,0 +1,116 @@
+import java.nio.ByteBuffer;
+
+/**
+ * File created on 10/18/2026.
+ *
+ * MBC5: up to 8MB of rom with a 9 bit bank number, and 128KB of ram in 16 banks. Unlike the
+ * older controllers, rom bank 0 can be selected into 0x4000-0x7FFF.
+ *
+ * On rumble carts bit 3 of the ram bank number drives the motor instead, leaving 8 ram
+ * banks. Motor changes go to a RumbleListener if one is set; that's only looked at on ram
+ * bank writes, never on a read.
+ */
+final class Mbc5 implements Mbc {
+
+    interface RumbleListener {
+        void motorChanged(boolean on);
+    }
+
+    private final ByteBuffer rom;
+    private final int romBankMask;
+    private final byte[] ram;
+    private final boolean hasRumble;
+    private RumbleListener rumbleListener;
+
+    private int romBankSelected = 1;
+    private int ramBankSelected = 0;
+    private boolean ramEnabled = false;
+    private boolean motorOn = false;
+
+    // added to 0x4000-0x7FFF and 0xA000-0xBFFF addresses to index rom and ram
+    private int romOffset;
+    private int ramOffset;
+
+    Mbc5(ByteBuffer rom, byte[] ram, boolean hasRumble) {
+        this.rom = rom;
+        this.romBankMask = Math.max(1, rom.limit() / 0x4000) - 1;
+        this.ram = ram;
+        this.hasRumble = hasRumble;
+        updateOffsets();
+    }
+
+    @Override
+    public int read(final int address) {
+        if (address < 0x4000) {
+            return rom.get(address) & 0xFF;
+        }
+        else if (address < 0x8000) {
+            return rom.get(romOffset + address) & 0xFF;
+        }
+        else if (!ramEnabled || ram.length == 0) {
+            return 0xFF;
+        }
+        return ram[(ramOffset + address) & (ram.length - 1)] & 0xFF;
+    }
+
+    @Override
+    public void write(final int address, final int value) {
+        if (address <= 0x1FFF) {
+            ramEnabled = ((value & 0b0000_1111) == 0xA);
+        }
+        else if (address <= 0x2FFF) {
+            romBankSelected = (romBankSelected & 0x100) | value; // low 8 bits
+            updateOffsets();
+        }
+        else if (address <= 0x3FFF) {
+            romBankSelected = (romBankSelected & 0xFF) | (value & 1) << 8; // bit 8
+            updateOffsets();
+        }
+        else if (address <= 0x5FFF) {
+            if (hasRumble) {
+                ramBankSelected = value & 0b0000_0111;
+                setMotor((value & 0b0000_1000) != 0);
+            }
+            else {
+                ramBankSelected = value & 0b0000_1111;
+            }
+            updateOffsets();
+        }
+        else if (address >= 0xA000 && ramEnabled && ram.length != 0) {
+            ram[(ramOffset + address) & (ram.length - 1)] = (byte) value;
+        }
+    }
+
+    void setRumbleListener(RumbleListener listener) {
+        rumbleListener = listener;
+    }
+
+    @Override
+    public int getRomBank() {
+        return romBankSelected & romBankMask;
+    }
+
+    @Override
+    public byte[] getMappedRam() {
+        return ramEnabled && ram.length != 0 ? ram : null;
+    }
+
+    @Override
+    public int getRamBankOffset() {
+        return ramBankSelected * 0x2000;
+    }
+
+    private void setMotor(boolean on) {
+        if (on != motorOn) {
+            motorOn = on;
+            if (rumbleListener != null) {
+                rumbleListener.motorChanged(on);
+            }
+        }
+    }
+
+    private void updateOffsets() {
+        romOffset = getRomBank() * 0x4000 - 0x4000;
+        ramOffset = getRamBankOffset() - 0xA000;
+    }
+}
@@ -1,7 +1,11 @@
 import helpers.Logger;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.LongSupplier;
 
 /**
  * Created by Pablo Canseco on 4/17/2018.
@@ -63,13 +67,13 @@ public class MbcManager {
         cartridgeTypes.put(0x11, new CartridgeType(0x11, "MBC3",                    MbcType.MBC3, false, false, false, false, false));
         cartridgeTypes.put(0x12, new CartridgeType(0x12, "MBC3 + RAM",              MbcType.MBC3, true, false, false, false, false));
         cartridgeTypes.put(0x13, new CartridgeType(0x13, "MBC3 + RAM + Battery",    MbcType.MBC3, true, true, false, false, false));
-        /*cartridgeTypes.put(0x19, new CartridgeType(0x19, "MBC5"));
-        cartridgeTypes.put(0x1A, new CartridgeType(0x1A, "MBC5 + RAM"));
-        cartridgeTypes.put(0x1B, new CartridgeType(0x1B, "MBC5 + RAM + Battery"));
-        cartridgeTypes.put(0x1C, new CartridgeType(0x1C, "MBC5 + Rumble"));
-        cartridgeTypes.put(0x1D, new CartridgeType(0x1D, "MBC5 + RAM + Rumble"));
-        cartridgeTypes.put(0x1E, new CartridgeType(0x1E, "MBC5 + RAM + Battery + Rumble"));
-        cartridgeTypes.put(0x20, new CartridgeType(0x20, "MBC6 + RAM + Battery"));
+        cartridgeTypes.put(0x19, new CartridgeType(0x19, "MBC5",                    MbcType.MBC5, false, false, false, false, false));
+        cartridgeTypes.put(0x1A, new CartridgeType(0x1A, "MBC5 + RAM",              MbcType.MBC5, true, false, false, false, false));
+        cartridgeTypes.put(0x1B, new CartridgeType(0x1B, "MBC5 + RAM + Battery",    MbcType.MBC5, true, true, false, false, false));
+        cartridgeTypes.put(0x1C, new CartridgeType(0x1C, "MBC5 + Rumble",           MbcType.MBC5, false, false, false, true, false));
+        cartridgeTypes.put(0x1D, new CartridgeType(0x1D, "MBC5 + RAM + Rumble",     MbcType.MBC5, true, false, false, true, false));
+        cartridgeTypes.put(0x1E, new CartridgeType(0x1E, "MBC5 + RAM + Battery + Rumble", MbcType.MBC5, true, true, false, true, false));
+        /*cartridgeTypes.put(0x20, new CartridgeType(0x20, "MBC6 + RAM + Battery"));
         cartridgeTypes.put(0x21, new CartridgeType(0x21, "Unused"));
         cartridgeTypes.put(0x22, new CartridgeType(0x22, "MBC7 + RAM + Bat. + Accelerometer"));
         cartridgeTypes.put(0xFC, new CartridgeType(0xFC, "POCKET CAMERA"));
@@ -80,14 +84,15 @@ public class MbcManager {
 
     private final Cartridge cart;
     private final MbcType mbcType;
-    private int romBankSelected = 1;
-    private boolean ramEnabled;
-    private int ramBankSelected = 0;
-    private boolean isRomMode = true;
     private final boolean hasRam;
     private final boolean hasBattery;
     private final boolean hasTimer;
-    private int[] ram;
+    private final boolean hasRumble;
+    private final byte[] ram;
+    private byte[] batteryRam; // ram, except for mbc2 which has its own
+    private final RealTimeClock clock; // null unless the cart has a timer
+    private BatterySave battery; // null unless openSave() mapped a .sav
+    private final Mbc mbc;
 
     MbcManager(Cartridge cart) {
         this.cart = cart;
@@ -95,120 +100,110 @@ public class MbcManager {
         this.hasRam     = cart.getCartridgeType().hasRam && (cart.getRamSize() != 0);
         this.hasBattery = cart.getCartridgeType().hasBattery;
         this.hasTimer   = cart.getCartridgeType().hasTimer;
-        this.ram        = new int[cart.getRamSize()];
-        for(int i : ram) {
-            i = 0xFF;
-        }
+        this.hasRumble  = cart.getCartridgeType().hasRumble;
+        this.ram        = new byte[hasRam ? cart.getRamSize() : 0];
+        this.batteryRam = ram;
+        this.clock      = hasTimer ? new RealTimeClock(Main.rtcWallClock) : null;
+        this.mbc        = createMbc();
     }
     MbcManager(Cartridge cart, Logger.Level logLevel) {
         this(cart);
         this.log = new Logger(name, logLevel);
     }
 
+    // the bank mapped at 0x4000-0x7FFF
+    public int getRomBank() {
+        return mbc.getRomBank();
+    }
+
+    ByteBuffer getRom() {
+        return cart.getRom();
+    }
+
+    // the ram mapped at 0xA000-0xBFFF, or null when accesses there have to go through
+    // mbcRead/mbcWrite
+    byte[] getMappedRam() {
+        return mbc.getMappedRam();
+    }
+    int getRamBankOffset() {
+        return mbc.getRamBankOffset();
+    }
+
     public int mbcRead(final int address) {
-        switch (mbcType) {
-            case ROM_ONLY:
-                return cart.readFromAddress(address);
-            case MBC1:
-                if (address < 0x4000) {
-                    return cart.readFromAddress(address);
-                }
-                else if (address < 0x8000){
-                    int effectiveAddress = (romBankSelected * 0x4000) + (address - 0x4000);
-                    return cart.readFromAddress(effectiveAddress);
-                }
-                else if (address >= 0xA000 && address <= 0xBFFF) {
-                    if (!ramEnabled || !hasRam) {
-                        return 0xFF;
-                    }
-                    else if (ramBankSelected == 0) {
-                        log.debug(String.format("read from effective address 0x%04X, array 0x%04X", address, address - 0xA000));
-                        return ram[address - 0xA000];
-                    }
-                    else {
-                        int effectiveAddress = ((ramBankSelected * 0x2000) + (address - 0xA000));
-                        log.debug(String.format("read from effective address 0x%04X, array 0x%04X", address, effectiveAddress));
-                        return ram[effectiveAddress];
-                    }
-                }
-                else {
-                    log.error(String.format("mbcRead() at address 0x%04X is not supported", address));
-                }
-            default:
-                log.warning(mbcType.name() + " is not implemented yet. Reading from provided address");
-                return cart.readFromAddress(address);
-        }
+        return mbc.read(address);
     }
 
     public void mbcWrite(final int address, final int value) {
+        mbc.write(address, value);
+    }
+
+    // the emulated cycle counter, for the clock. see MemoryManager.setScheduler()
+    void setCycleCounter(LongSupplier cycles) {
+        if (clock != null) {
+            clock.setCycleCounter(cycles);
+        }
+    }
+
+    // hears when a rumble cart turns its motor on or off. nothing to do for other carts.
+    void setRumbleListener(Mbc5.RumbleListener listener) {
+        if (mbc instanceof Mbc5) {
+            ((Mbc5) mbc).setRumbleListener(listener);
+        }
+    }
+
+    // maps battery backed ram, and the clock after it, onto the .sav next to the rom, loads
+    // what was saved there and starts flushing changes every flushMillis
+    void openSave(long flushMillis) {
+        if (!hasBattery || (batteryRam.length == 0 && clock == null)) {
+            return;
+        }
+        try {
+            battery = new BatterySave(new File(cart.getSavePath()), batteryRam,
+                    clock != null ? RealTimeClock.SAVE_SIZE : 0);
+        } catch (IOException e) {
+            log.error("couldn't open " + cart.getSavePath() + ", the game won't be saved: " + e);
+            return;
+        }
+        if (clock != null && battery.hasSaved(RealTimeClock.SAVE_SIZE)) {
+            clock.load(battery.extra());
+        }
+        battery.start(flushMillis, clock != null ? clock::save : null);
+    }
+
+    // writes out everything that hasn't been flushed yet, and the clock
+    void closeSave() {
+        if (battery != null) {
+            battery.close();
+            battery = null;
+        }
+    }
+
+    // saves, then lets go of the cartridge. nothing can be read through this afterwards.
+    void close() {
+        closeSave();
+        cart.close();
+    }
+
+    //<editor-fold desc=" IMPLEMENTATION " defaultstate="collapsed">
+    private Mbc createMbc() {
+        ByteBuffer rom = cart.getRom();
         switch (mbcType) {
             case ROM_ONLY:
-                log.debug("Cartridge is ROM_ONLY so writing to ROM won't do anything");
-                break;
+                return new RomOnly(rom, ram);
             case MBC1:
-
-                if (address <= 0x1FFF) {
-                    // lower 4 bits == 0xA means enable. Anything else disable.
-                    ramEnabled = ((value & 0b0000_1111) == 0xA);
-                    log.debug("ram enabled set to " + ramEnabled);
-                }
-                else if (address <= 0x3FFF) {
-                    // write the lower 5 bits of romBank selection
-                    romBankSelected = (value & 0b0001_1111);
-                    log.debug(String.format("selected 0x%02X for rom bank low", romBankSelected));
-
-                    if (romBankSelected == 0) {
-                        romBankSelected++;
-                    }
-                }
-                else if (address <= 0x5FFF) {
-                    if (isRomMode) {
-                        romBankSelected &= 0b0001_1111; // clear bits 5 and 6
-                        romBankSelected |= (value & 0b0000_0011) << 5; // replace bits 1 and 2 from value
-                        log.debug("selected " + romBankSelected + " for rom bank high");
-                        if (romBankSelected == 0 ||
-                                romBankSelected == 0x20 ||
-                                romBankSelected == 0x40 ||
-                                romBankSelected == 0x60) {
-                            romBankSelected++;
-                        }
-                    }
-                    else {
-                        ramBankSelected = (value & 0b0000_0011); // select a bank from 0 to 3
-                        log.debug("selected ram bank " + ramBankSelected);
-                    }
-                }
-                else if (address <= 0x7FFF) {
-                    isRomMode = (value == 0); // 0=rom, 1=ram
-
-                    if (isRomMode) {
-                        ramBankSelected = 0;
-                    }
-                    else {
-                        romBankSelected &= 0b0001_1111;
-                    }
-
-                    log.debug("rom mode set to " + isRomMode);
-                }
-                else if (address <= 0xBFFF && address >= 0xA000) {
-                    if (!ramEnabled || !hasRam) {
-                        return;
-                    }
-                    else if (ramBankSelected == 0) {
-                        log.debug(String.format("write ram at effective address 0x%04X, array 0x%04X", address, address - 0xA000));
-                        ram[address - 0xA000] = value;
-                    }
-                    else {
-                        int effectiveAddress = ((ramBankSelected * 0x2000) + (address - 0xA000));
-                        log.debug(String.format("write ram at effective address 0x%04X, array 0x%04X", address, effectiveAddress));
-                        ram[effectiveAddress] = value;
-                    }
-                }
-
-                break;
+                return new Mbc1(rom, ram);
+            case MBC2:
+                Mbc2 mbc2 = new Mbc2(rom);
+                batteryRam = mbc2.getRam();
+                return mbc2;
+            case MBC3:
+                return new Mbc3(rom, ram, clock);
+            case MBC5:
+                return new Mbc5(rom, ram, hasRumble);
             default:
-                log.warning(mbcType.name() + " is not implemented yet. Rom write ignored.");
-                break;
+                log.warning(mbcType.name() + " is not implemented yet. Reading the rom without banking.");
+                return new RomOnly(rom, ram);
         }
     }
+    //</editor-fold>
 }
@@ -1,7 +1,10 @@
 import helpers.Logger;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Timer;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
 
 /**
  * Created by Pablo Canseco on 12/24/2017.
@@ -35,12 +38,61 @@ public class MemoryManager {
 
     private MbcManager cartMbc;
     private Gpu gpu;
+    private DecodeCache decodeCache;
+    private Scheduler scheduler;   // null until a cpu is attached
     public final int memorySize = 0xFFFF;
 
-    private int[] io   = new int[0x100];  // 256
-    private int[] oam  = new int[0x100];  // 256
-    private int[] wram = new int[0x2000]; // 8192
-    private int[] hram = new int[0x80];   // 128
+    // 8 bit memory is kept in bytes and read back with & 0xFF
+    private byte[] io   = new byte[0x100];  // 256
+    private byte[] oam  = new byte[0x100];  // 256
+    private byte[] wram = new byte[0x2000]; // 8192
+    private byte[] hram = new byte[0x80];   // 128
+
+    // the memory map, one entry per 256 byte page. pages of plain memory point straight at
+    // the array behind them, with the index the page starts at in it. null pages have side
+    // effects or aren't backed by one array (io, the mbc registers, tile data and oam writes,
+    // the bootrom) and go through readSlow/writeSlow. bank switches and leaving the bootrom
+    // remap entries here, so the common case is one lookup instead of a chain of range checks.
+    // the rom is a shared read-only mapping rather than an array, its pages are in romPages.
+    private final byte[][] readPages = new byte[0x100][];
+    private final ByteBuffer[] romPages = new ByteBuffer[0x100];
+    private final int[] readOffsets = new int[0x100];
+    private final byte[][] writePages = new byte[0x100][];
+    private final int[] writeOffsets = new int[0x100];
+
+    // what the cpu sees: the memory map, or during an oam dma no pages at all, so every access
+    // goes through readSlow/writeSlow and everything below io is off limits
+    private static final byte[][] NOTHING_MAPPED = new byte[0x100][];
+    private static final ByteBuffer[] NO_ROM_MAPPED = new ByteBuffer[0x100];
+    private byte[][] cpuReadPages = readPages;
+    private ByteBuffer[] cpuRomPages = romPages;
+    private byte[][] cpuWritePages = writePages;
+    private boolean dmaActive = false;
+
+    // io registers, by address - 0xff00. built once by buildIoHandlers()
+    private final IntSupplier[] ioReads = new IntSupplier[0x80];
+    private final IntConsumer[] ioWrites = new IntConsumer[0x80];
+
+    // bits of each io register that aren't wired to anything and always read back as 1
+    private static final int[] UNUSED_BITS = new int[0x80];
+    static {
+        UNUSED_BITS[0x02] = 0b0111_1110;
+        UNUSED_BITS[0x07] = 0b1111_1000;
+        UNUSED_BITS[0x0f] = 0b1110_0000;
+        UNUSED_BITS[0x10] = 0b1000_0000;
+        UNUSED_BITS[0x1a] = 0b0111_1111;
+        UNUSED_BITS[0x1c] = 0b1001_1111;
+        UNUSED_BITS[0x20] = 0b1100_0000;
+        UNUSED_BITS[0x23] = 0b0011_1111;
+        UNUSED_BITS[0x26] = 0b0111_0000;
+        UNUSED_BITS[0x41] = 0b1000_0000;
+        for (int register : new int[] { 0x03, 0x08, 0x09, 0x0a, 0x0b, 0x0c, 0x0d, 0x0e, 0x15, 0x1f, 0x27, 0x28, 0x29 }) {
+            UNUSED_BITS[register] = 0b1111_1111;
+        }
+        for (int register = 0x4c; register <= 0x7f; register++) {
+            UNUSED_BITS[register] = 0b1111_1111;
+        }
+    }
 
     public boolean inBootrom = true;
 
@@ -48,6 +100,16 @@ public class MemoryManager {
         this.cartMbc = cart;
         this.gpu = gpu;
 
+        map(readPages, readOffsets, 0x80, 0xA0, gpu.vram, 0);
+        map(writePages, writeOffsets, 0x98, 0xA0, gpu.vram, 0x1800); // tile maps, tile data writes tell the gpu
+        map(readPages, readOffsets, 0xC0, 0xE0, wram, 0);
+        map(writePages, writeOffsets, 0xC0, 0xE0, wram, 0);
+        map(readPages, readOffsets, 0xE0, 0xFE, wram, 0);             // echo
+        map(writePages, writeOffsets, 0xE0, 0xFE, wram, 0);
+        map(readPages, readOffsets, 0xFE, 0xFF, oam, 0);
+        mapCartridge();
+        buildIoHandlers();
+
         //this.writeByte(0xff00, 0xcf);
     }
     MemoryManager(MbcManager cart) {
@@ -55,213 +117,142 @@ public class MemoryManager {
         this.log = new Logger(this.getClass().getName(), Logger.Level.FATAL);
     }
 
+    MbcManager getMbc() {
+        return cartMbc;
+    }
+    void setDecodeCache(DecodeCache decodeCache) {
+        this.decodeCache = decodeCache;
+    }
+    void setScheduler(Scheduler scheduler) {
+        this.scheduler = scheduler;
+        scheduler.setMemoryManager(this);
+        cartMbc.setCycleCounter(() -> scheduler.now);
+    }
+
     public int readByte(final int address) throws IndexOutOfBoundsException {
-        if (isValidMemoryAddress(address)) {
+        // addresses outside 0-0xFFFF fall outside the page table, which throws as well
+        final int page = address >> 8;
+        final byte[] memory = cpuReadPages[page];
+        if (memory != null) {
+            return memory[readOffsets[page] + (address & 0xFF)] & 0xFF;
+        }
+        final ByteBuffer rom = cpuRomPages[page];
+        if (rom != null) {
+            return rom.get(readOffsets[page] + (address & 0xFF)) & 0xFF;
+        }
+        return readSlow(address);
+    }
+    // only the low 8 bits of value are stored, same as the byte cast on the fast path
+    public void writeByte(final int address, final int value) throws IndexOutOfBoundsException {
+        final int page = address >> 8;
+        final byte[] memory = cpuWritePages[page];
 
-            // from github CTurt/Cinoop
-            if (address <= 0x7fff) {
-                if (inBootrom)
-                {
-                    if (address < 0x0100) { // less than 256
-                        return getBios()[address];
-                    }
-                    else if (address == 0x0100) { // pc is 256
-                        inBootrom = false;
-                        int div = TimerService.getInstance().getDivider();
-                        log.fatal("DIV=" + div + " AT PC=0x100");
-                    }
-                }
-                return cartMbc.mbcRead(address);
-            }
-            else if (address >= 0x8000 && address <= 0x9fff) {
-                return gpu.vram[address - 0x8000];
-            }
-            else if (address >= 0xa000 && address <= 0xbfff) {
-                return cartMbc.mbcRead(address);
-            }
-            else if (address >= 0xc000 && address <= 0xdfff) {
-                return wram[address - 0xc000];
-            }
-            else if (address >= 0xe000 && address <= 0xfdff) {
-                return wram[address - 0xe000];
-            }
-            else if (address >= 0xfe00 && address <= 0xfeff) {
-                return oam[address - 0xfe00];
-            }
-            else if (address == 0xff40) {
-                return gpu.lcdControl.getLcdControl();
-            }
-            else if(address == 0xff41) {
-                return processUnusedBits(address, gpu.lcdStatus.getLcdStat());
-            }
-            else if (address == 0xff42) {
-                return gpu.scrollY;
-            }
-            else if (address == 0xff43) {
-                return gpu.scrollX;
-            }
-            else if (address == 0xff44) {
-                return gpu.line; // read only
-            }
-            else if (address == 0xff45) {
-                return gpu.lyc;
-            }
-            else if (address == 0xff00) { // JOYPAD
-                return Joypad.getInstance().getKeysPressed();
-            }
-            else if (address >= 0xff01 && address <= 0xffff) {
+        if (decodeCache != null) {
+            decodeCache.memoryWritten(address);
+        }
 
-                // TIMER ADDRESSES
-                if (address == 0xff04) {
-                    return TimerService.getInstance().getDivider();
-                }
-                else if (address == 0xff05) {
-                    return TimerService.getInstance().getCounter();
-                }
-                else if (address == 0xff06) {
-                    return TimerService.getInstance().getModulo();
-                }
-                else if (address == 0xff07) { // timer control register
-                    return processUnusedBits(address, TimerService.getInstance().getControl());
-                }
-                // END TIMER ADDRESSES
+        if (memory != null) {
+            memory[writeOffsets[page] + (address & 0xFF)] = (byte) value;
+            return;
+        }
+        writeSlow(address, value & 0xFF);
+    }
 
-                else if (address == 0xff0f) { // interrupt flags
-                    int iflags = InterruptManager.getInstance().getInterruptsRaised();
-                    log.info("read the interrupt flags address, value = " + iflags);
-                    return processUnusedBits(address, iflags);
-                }
-                else if (address == 0xffff) { // interrupt enable
-                    int ie = InterruptManager.getInstance().getInterruptsEnabled();
-                    log.info("read the interrupt enable address, value = " + ie);
-                    return processUnusedBits(address, ie);
-                }
-                else if (address >= 0xff80 && address <= 0xfffe) {
-                    return processUnusedBits(address, hram[address - 0xff80]);
-                }
+    // everything the page table doesn't map, and still correct for the pages it does
+    private int readSlow(final int address) throws IndexOutOfBoundsException {
+        if (!isValidMemoryAddress(address)) {
+            throw new IndexOutOfBoundsException(address + " isn't a valid memory address.");
+        }
+        if (dmaActive && address < 0xff00) {
+            return 0xff; // the dma has the bus
+        }
 
-                else if (address >= 0xff10 && address <= 0xff3f) { // sound hardware
-                    return processUnusedBits(address, io[address - 0xff10]);
+        // from github CTurt/Cinoop
+        if (address <= 0x7fff) {
+            if (inBootrom)
+            {
+                if (address < 0x0100) { // less than 256
+                    return getBios()[address];
                 }
-
-                else {
-                    return processUnusedBits(address, 0);
+                else if (address == 0x0100) { // pc is 256
+                    inBootrom = false;
+                    syncTimer();
+                    int div = TimerService.getInstance().getDivider();
+                    log.fatal("DIV=" + div + " AT PC=0x100");
                 }
             }
+            if (!inBootrom && romPages[0x00] == null) {
+                mapCartridge(); // the bootrom is gone (or was never run), map rom bank 0 over it
+            }
+            return cartMbc.mbcRead(address);
         }
-        else {
-            throw new IndexOutOfBoundsException(address + " isn't a valid memory address.");
+        else if (address <= 0x9fff) {
+            return gpu.vram[address - 0x8000] & 0xFF;
+        }
+        else if (address <= 0xbfff) {
+            return cartMbc.mbcRead(address);
+        }
+        else if (address <= 0xdfff) {
+            return wram[address - 0xc000] & 0xFF;
+        }
+        else if (address <= 0xfdff) {
+            return wram[address - 0xe000] & 0xFF;
+        }
+        else if (address <= 0xfeff) {
+            return oam[address - 0xfe00] & 0xFF;
+        }
+        else if (address <= 0xff7f) {
+            final int register = address - 0xff00;
+            return ioReads[register].getAsInt() | UNUSED_BITS[register];
+        }
+        else if (address <= 0xfffe) {
+            return hram[address - 0xff80] & 0xFF;
+        }
+        else { // interrupt enable
+            return InterruptManager.getInstance().getInterruptsEnabled();
         }
-
-        return 0;
     }
-    public void writeByte(final int address, final int value) throws IndexOutOfBoundsException, NumberFormatException {
+    private void writeSlow(final int address, final int value) throws IndexOutOfBoundsException {
         if (!isValidMemoryAddress(address)) {
             throw new IndexOutOfBoundsException();
         }
-
-        if (value > 255 || value < 0) {
-            throw new NumberFormatException(value + " isn't between 0 and 255 inclusive");
+        if (dmaActive && address < 0xff00) {
+            return;
         }
 
         // from github CTurt/Cinoop
-        if (address >= 0 && address <= 0x7fff) {
-            cartMbc.mbcWrite(address, value);
-        }
-        else if(address >= 0xa000 && address <= 0xbfff) {
+        if (address <= 0x7fff) {
             cartMbc.mbcWrite(address, value);
+            mapCartridge(); // might have switched banks or turned ram on or off
         }
-        else if(address >= 0x8000 && address <= 0x9fff) {
-            gpu.vram[address - 0x8000] = value;
-            if(address <= 0x97ff) {
+        else if (address <= 0x9fff) {
+            gpu.vram[address - 0x8000] = (byte) value;
+            if (address <= 0x97ff) {
                 gpu.updateTile(address);
-                log.debug(String.format("write %02x updateTile(address,%02x)", address, value));
             }
         }
-
-        if(address >= 0xc000 && address <= 0xdfff) {
-            wram[address - 0xc000] = value;
+        else if (address <= 0xbfff) {
+            cartMbc.mbcWrite(address, value);
+        }
+        else if (address <= 0xdfff) {
+            wram[address - 0xc000] = (byte) value;
         }
-        else if(address >= 0xe000 && address <= 0xfdff) {
-            wram[address - 0xe000] = value;
+        else if (address <= 0xfdff) {
+            wram[address - 0xe000] = (byte) value;
         }
-        else if(address >= 0xfe00 && address <= 0xfeff) {
-            oam[address - 0xfe00] = value;
+        else if (address <= 0xfeff) {
+            oam[address - 0xfe00] = (byte) value;
             gpu.buildSprite(address - 0xfe00, value);
         }
-        else if(address >= 0xff80 && address <= 0xfffe) {
-            hram[address - 0xff80] = value;
+        else if (address <= 0xff7f) {
+            ioWrites[address - 0xff00].accept(value);
         }
-        else if(address >= 0xff00 && address <= 0xff7f) {
-            if (address == 0xff00) { // JOYPAD
-                Joypad.getInstance().setJoypadMode(value);
-            }
-
-            else if(address == 0xff40) {
-                gpu.lcdControl.setLcdControl(value);
-            }
-            else if(address == 0xff41) {
-                gpu.lcdStatus.setLcdStat(value);
-            }
-            else if(address == 0xff42) {
-                gpu.scrollY = value;
-            }
-            else if(address == 0xff43) {
-                gpu.scrollX = value;
-            }
-            else if (address == 0xff45) {
-                gpu.lyc = value;
-            }
-            else if(address == 0xff46) {
-                log.debug("write " + address + "copy(0xfe00, value << 8, 160); // OAM DMA");
-                for(int i = 0; i < 160; i++) {
-                    writeByte(0xfe00 + i, readByte((value << 8) + i));
-                }
-            }
-            else if(address == 0xff47) { // background palette, write only
-                for(int i = 0; i < 4; i++) gpu.backgroundPalette[i] = gpu.palette[(value >> (i * 2)) & 3];
-            }
-            else if(address == 0xff48) { // sprite palette 0, write only
-                for(int i = 0; i < 4; i++) gpu.spritePalette[0][i] = gpu.palette[(value >> (i * 2)) & 3];
-            }
-            else if(address == 0xff49) { // sprite palette 1, write only
-                for(int i = 0; i < 4; i++) gpu.spritePalette[1][i] = gpu.palette[(value >> (i * 2)) & 3];
-            }
-            else if(address == 0xff0f) { // interrupt flags register
-                InterruptManager.getInstance().raiseInterrupt(value);
-            }
-
-            // TIMER ADDRESSES
-            else if(address == 0xff04) { // timer divider register
-                TimerService.getInstance().clearDivider();
-            }
-            else if (address == 0xff05) { // timer counter register
-                TimerService.getInstance().setCounter(value);
-            }
-            else if (address == 0xff06) { // timer modulo register
-                TimerService.getInstance().setModulo(value);
-            }
-            else if(address == 0xff07) { // timer control register
-                TimerService.getInstance().setControl(value);
-            }
-            // END TIMER ADDRESSES
-
-            else {
-                io[address - 0xff00] = value;
-            }
+        else if (address <= 0xfffe) {
+            hram[address - 0xff80] = (byte) value;
         }
-        else if(address == 0xffff) { // interrupt enable register
+        else { // interrupt enable register
             InterruptManager.getInstance().enableInterrupt(value);
-            //log.info("write " + address + "=" + value + " : interrupt enable");
-        }
-
-
-        // hooks/intercepts
-        if (address == 0xFF01) { // SERIAL
-            System.out.print((char) value);
-            //if((char) value == '#') System.exit(1);
         }
-
     }
 
     public int readWord(final int address) throws IndexOutOfBoundsException {
@@ -292,50 +283,162 @@ public class MemoryManager {
         return true;
     }
 
-    private int processUnusedBits(int address, int value) {
-        //if (address == 0xff00) {
-        //    return value |= 0b1100_0000;
-        //}
-        /*else*/ if (address == 0xff02) {
-            return value |= 0b0111_1110;
+    // points the rom and cartridge ram pages at whatever the mbc has selected. pages the
+    // mbc can't back with its arrays are left to mbcRead/mbcWrite.
+    private void mapCartridge() {
+        ByteBuffer rom = cartMbc.getRom();
+        int bank = cartMbc.getRomBank() * 0x4000;
+        ByteBuffer bank0 = rom.limit() >= 0x4000 ? rom : null;
+        // while the bootrom is mapped, reads of the first two pages have to see it (and see
+        // pc reach 0x100)
+        map(romPages, 0x00, 0x02, inBootrom ? null : bank0, 0);
+        map(romPages, 0x02, 0x40, bank0, 0x200);
+        map(romPages, 0x40, 0x80, bank + 0x4000 <= rom.limit() ? rom : null, bank);
+
+        byte[] ram = cartMbc.getMappedRam();
+        int ramBank = cartMbc.getRamBankOffset();
+        if (ram == null || ramBank + 0x2000 > ram.length) {
+            ram = null;
         }
-        else if (address == 0xff07) {
-            return value |= 0b1111_1000;
+        map(readPages, readOffsets, 0xA0, 0xC0, ram, ramBank);
+        map(writePages, writeOffsets, 0xA0, 0xC0, ram, ramBank);
+    }
+    private static void map(byte[][] pages, int[] offsets, int from, int to, byte[] memory, int offset) {
+        for (int page = from; page < to; page++) {
+            pages[page] = memory;
+            offsets[page] = offset + (page - from) * 0x100;
         }
-        else if (address == 0xff0f) {
-            return value |= 0b1110_0000;
+    }
+    private void map(ByteBuffer[] pages, int from, int to, ByteBuffer rom, int offset) {
+        for (int page = from; page < to; page++) {
+            pages[page] = rom;
+            readOffsets[page] = offset + (page - from) * 0x100;
         }
-        else if (address == 0xff41 || address == 0xff10) {
-            return value |= 0b1000_0000;
+    }
+
+    // oam dma. the 160 bytes are copied straight from the source page's array and the sprite
+    // table is rebuilt once. the cpu is then kept off everything below the io registers for
+    // as long as the real transfer takes; io and hram aren't on the bus the dma uses.
+    private void startDma(final int sourcePage) {
+        log.debug(String.format("write ff46 copy(0xfe00, 0x%02x00, 160); // OAM DMA", sourcePage));
+        dmaFinished(); // a new dma restarts the transfer
+        byte[] memory = readPages[sourcePage];
+        ByteBuffer rom = romPages[sourcePage];
+        if (memory != null) {
+            System.arraycopy(memory, readOffsets[sourcePage], oam, 0, 160);
         }
-        else if (address == 0xff1a) {
-            return value |= 0b0111_1111;
+        else if (rom != null) {
+            ByteBuffer source = rom.duplicate();
+            source.position(readOffsets[sourcePage]);
+            source.get(oam, 0, 160);
         }
-        else if (address == 0xff1c) {
-            return value |= 0b1001_1111;
+        else {
+            for (int i = 0; i < 160; i++) {
+                oam[i] = (byte) readSlow((sourcePage << 8) + i);
+            }
         }
-        else if (address == 0xff20) {
-            return value |= 0b1100_0000;
+        gpu.buildSprites(oam);
+
+        if (scheduler != null) {
+            dmaActive = true;
+            cpuReadPages = NOTHING_MAPPED;
+            cpuRomPages = NO_ROM_MAPPED;
+            cpuWritePages = NOTHING_MAPPED;
+            scheduler.dmaStarted();
         }
-        else if (address == 0xff23) {
-            return value |= 0b0011_1111;
+    }
+    // true while an oam dma has the bus, see startDma()
+    boolean isDmaActive() {
+        return dmaActive;
+    }
+    void dmaFinished() {
+        dmaActive = false;
+        cpuReadPages = readPages;
+        cpuRomPages = romPages;
+        cpuWritePages = writePages;
+    }
+
+    // the timer and gpu are stepped by the cpu's scheduler. without a cpu attached
+    // (like in some tests) they just don't move.
+    private void syncTimer() {
+        if (scheduler != null) {
+            scheduler.syncTimer();
         }
-        else if (address == 0xff26) {
-            return value |= 0b0111_0000;
+    }
+    private void timerChanged() {
+        if (scheduler != null) {
+            scheduler.timerChanged();
         }
-        else if (address == 0xff03 || address == 0xff08 ||
-                address == 0xff09 || address == 0xff0a ||
-                address == 0xff0b || address == 0xff0c ||
-                address == 0xff0d || address == 0xff0e ||
-                address == 0xff15 || address == 0xff1f ||
-                address == 0xff27 || address == 0xff28 ||
-                address == 0xff29 ||
-                (address >= 0xff4c && address <= 0xff7f)) {
-            return value |= 0b1111_1111;
+    }
+    private void syncGpu() {
+        if (scheduler != null) {
+            scheduler.syncGpu();
         }
-        else {
-            return value;
+    }
+    private void lcdChanged() {
+        if (scheduler != null) {
+            scheduler.gpuChanged();
         }
     }
 
+    // io register handlers, by address - 0xff00. registers without one read back as 0
+    // (plus their unused bits) and keep what's written to them in io[].
+    private void buildIoHandlers() {
+        for (int i = 0; i < ioReads.length; i++) {
+            final int register = i;
+            ioReads[i] = () -> 0;
+            ioWrites[i] = value -> io[register] = (byte) value;
+        }
+        for (int i = 0x10; i <= 0x3f; i++) { // sound hardware
+            final int register = i;
+            ioReads[i] = () -> io[register] & 0xFF;
+        }
+
+        ioReads[0x00] = () -> Joypad.getInstance().getKeysPressed();
+        ioWrites[0x00] = value -> Joypad.getInstance().setJoypadMode(value);
+        ioWrites[0x01] = value -> { // SERIAL
+            io[0x01] = (byte) value;
+            System.out.print((char) value);
+        };
+
+        // the timer only catches up when it's looked at
+        ioReads[0x04] = () -> { syncTimer(); return TimerService.getInstance().getDivider(); };
+        ioReads[0x05] = () -> { syncTimer(); return TimerService.getInstance().getCounter(); };
+        ioReads[0x06] = () -> { syncTimer(); return TimerService.getInstance().getModulo(); };
+        ioReads[0x07] = () -> { syncTimer(); return TimerService.getInstance().getControl(); };
+        ioWrites[0x04] = value -> { syncTimer(); TimerService.getInstance().clearDivider(); timerChanged(); };
+        ioWrites[0x05] = value -> { syncTimer(); TimerService.getInstance().setCounter(value); timerChanged(); };
+        ioWrites[0x06] = value -> { syncTimer(); TimerService.getInstance().setModulo(value); timerChanged(); };
+        ioWrites[0x07] = value -> { syncTimer(); TimerService.getInstance().setControl(value); timerChanged(); };
+
+        ioReads[0x0f] = () -> InterruptManager.getInstance().getInterruptsRaised();
+        ioWrites[0x0f] = value -> InterruptManager.getInstance().raiseInterrupt(value);
+
+        ioReads[0x40] = () -> gpu.lcdControl.getLcdControl();
+        ioReads[0x41] = () -> gpu.lcdStatus.getLcdStat();
+        ioReads[0x42] = () -> gpu.scrollY;
+        ioReads[0x43] = () -> gpu.scrollX;
+        ioReads[0x44] = () -> gpu.line; // read only
+        ioReads[0x45] = () -> gpu.lyc;
+        ioWrites[0x40] = value -> {
+            syncGpu(); // turning the lcd on resets the mode clock
+            gpu.lcdControl.setLcdControl(value);
+            lcdChanged();
+        };
+        ioWrites[0x41] = value -> {
+            gpu.lcdStatus.setLcdStat(value);
+            lcdChanged();
+        };
+        ioWrites[0x42] = value -> gpu.scrollY = value;
+        ioWrites[0x43] = value -> gpu.scrollX = value;
+        ioWrites[0x45] = value -> {
+            gpu.lyc = value;
+            lcdChanged();
+        };
+        ioWrites[0x46] = this::startDma;
+        // palettes, write only
+        ioWrites[0x47] = value -> { for (int i = 0; i < 4; i++) gpu.backgroundPalette[i] = gpu.palette[(value >> (i * 2)) & 3]; };
+        ioWrites[0x48] = value -> { for (int i = 0; i < 4; i++) gpu.spritePalette[0][i] = gpu.palette[(value >> (i * 2)) & 3]; };
+        ioWrites[0x49] = value -> { for (int i = 0; i < 4; i++) gpu.spritePalette[1][i] = gpu.palette[(value >> (i * 2)) & 3]; };
+    }
 }
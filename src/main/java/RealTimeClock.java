@@ -0,0 +1,158 @@
+import java.nio.ByteBuffer;
+import java.util.function.LongSupplier;
+
+/**
+ * File created on 10/18/2026.
+ *
+ * The clock on MBC3 cartridges: seconds, minutes, hours, a 9 bit day counter, a halt bit and
+ * a day counter carry. The program never sees it tick, it only sees the copy made the last
+ * time it latched the clock. So the clock isn't stepped at all: it's a base count plus however
+ * far its time source moved since then, and that's only worked out when it's latched or
+ * written.
+ *
+ * The time source is the emulated cycle counter by default, so the clock runs at the speed
+ * the game does and a run is repeatable. With -rtcwall it's the host's clock instead, and it
+ * also catches up on the time the emulator wasn't running when a save is loaded.
+ *
+ * save() is called from the battery save thread while the cpu keeps running, so everything
+ * that moves the base is synchronized.
+ */
+final class RealTimeClock {
+    static final int SAVE_SIZE = 48;
+
+    private static final long CYCLES_PER_SECOND = 4194304;
+    private static final long DAYS = 512; // the day counter wraps after this and sets the carry
+
+    private final boolean wallClock;
+    private final long ticksPerSecond;
+    private LongSupplier source;
+
+    // live counter in ticks of the source, as of baseSource
+    private long baseTicks = 0;
+    private long baseSource;
+    private boolean halted = false;
+    private boolean carry = false;
+
+    // S, M, H, DL, DH as of the last latch, what 0xA000-0xBFFF shows with 0x08-0x0C selected
+    private final int[] latched = new int[5];
+    private boolean latchArmed = false;
+
+    RealTimeClock(boolean wallClock) {
+        this.wallClock = wallClock;
+        this.ticksPerSecond = wallClock ? 1000 : CYCLES_PER_SECOND;
+        this.source = wallClock ? System::currentTimeMillis : () -> 0;
+        this.baseSource = source.getAsLong();
+    }
+
+    // the emulated clock to count in, once there is one. ignored with the wall clock.
+    synchronized void setCycleCounter(LongSupplier cycles) {
+        if (!wallClock) {
+            sync();
+            source = cycles;
+            baseSource = cycles.getAsLong();
+        }
+    }
+
+    // register 0-4 is S, M, H, DL, DH
+    int read(final int register) {
+        return latched[register];
+    }
+
+    synchronized void write(final int register, final int value) {
+        sync();
+        long subsecond = baseTicks % ticksPerSecond;
+        long seconds = baseTicks / ticksPerSecond;
+        int second = (int) (seconds % 60);
+        int minute = (int) (seconds / 60 % 60);
+        int hour = (int) (seconds / 3600 % 24);
+        int day = (int) (seconds / 86400);
+        switch (register) {
+            case 0:
+                second = value & 0x3F;
+                subsecond = 0; // writing the seconds resets the divider
+                break;
+            case 1:
+                minute = value & 0x3F;
+                break;
+            case 2:
+                hour = value & 0x1F;
+                break;
+            case 3:
+                day = (day & 0x100) | (value & 0xFF);
+                break;
+            default:
+                day = (day & 0xFF) | (value & 1) << 8;
+                halted = (value & 0x40) != 0;
+                carry = (value & 0x80) != 0;
+                break;
+        }
+        baseTicks = (((day * 24L + hour) * 60 + minute) * 60 + second) * ticksPerSecond + subsecond;
+    }
+
+    // writing 0x00 and then 0x01 to 0x6000-0x7FFF copies the live counter into the registers
+    synchronized void latch(final int value) {
+        if (latchArmed && value == 0x01) {
+            sync();
+            registers(latched);
+        }
+        latchArmed = value == 0x00;
+    }
+
+    // the usual layout after the save ram: live and latched registers as little endian ints,
+    // then when the save was made as a 64 bit unix timestamp
+    synchronized void save(ByteBuffer out) {
+        sync();
+        int[] live = new int[5];
+        registers(live);
+        for (int value : live) {
+            out.putInt(value);
+        }
+        for (int value : latched) {
+            out.putInt(value);
+        }
+        out.putLong(System.currentTimeMillis() / 1000);
+    }
+
+    synchronized void load(ByteBuffer in) {
+        int[] live = new int[5];
+        for (int i = 0; i < live.length; i++) {
+            live[i] = in.getInt();
+        }
+        for (int i = 0; i < latched.length; i++) {
+            latched[i] = in.getInt();
+        }
+        long savedAt = in.getLong();
+        for (int i = 0; i < live.length; i++) {
+            write(i, live[i]);
+        }
+        if (wallClock && !halted) {
+            baseTicks += Math.max(0, System.currentTimeMillis() / 1000 - savedAt) * ticksPerSecond;
+        }
+    }
+
+    //<editor-fold desc=" IMPLEMENTATION " defaultstate="collapsed">
+    // moves the base up to now
+    private void sync() {
+        long now = source.getAsLong();
+        if (!halted) {
+            baseTicks += now - baseSource;
+        }
+        baseSource = now;
+        long limit = DAYS * 86400 * ticksPerSecond;
+        if (baseTicks >= limit) {
+            baseTicks %= limit;
+            carry = true;
+        }
+    }
+
+    private void registers(int[] registers) {
+        long seconds = baseTicks / ticksPerSecond;
+        long day = seconds / 86400;
+        registers[0] = (int) (seconds % 60);
+        registers[1] = (int) (seconds / 60 % 60);
+        registers[2] = (int) (seconds / 3600 % 24);
+        registers[3] = (int) (day & 0xFF);
+        registers[4] = (int) (day >> 8 & 1) | (halted ? 0x40 : 0) | (carry ? 0x80 : 0);
+    }
+    //</editor-fold>
+}
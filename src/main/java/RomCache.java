@@ -0,0 +1,104 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * File created on 10/18/2026.
+ *
+ * Rom images shared by every cartridge in the jvm. A rom file is mapped read-only with
+ * FileChannel.map instead of being read into the heap, and each image is kept once per
+ * content hash, so many emulators running the same game share one mapping.
+ *
+ * Files are also remembered by path, size and modification time. Loading one of those
+ * again is a map lookup: nothing is read or hashed. A different file with the same contents
+ * is hashed once and then shares the image that's already there.
+ *
+ * Every acquire() has to be paired with a release(). When the last cartridge using an image
+ * releases it, the image is dropped from the cache. The mapping itself goes away when it's
+ * garbage collected, java 8 has no supported way to unmap a buffer any sooner.
+ */
+final class RomCache {
+
+    static final class Image {
+        final String hash;
+        private final ByteBuffer data;
+        private final List<String> files = new ArrayList<>();
+        private int references = 0;
+
+        private Image(String hash, ByteBuffer data) {
+            this.hash = hash;
+            this.data = data;
+        }
+
+        // a read-only view of the whole rom. views share the mapping, only their position
+        // and limit are their own.
+        ByteBuffer view() {
+            return data.duplicate();
+        }
+    }
+
+    private static final Map<String, Image> byHash = new HashMap<>();
+    private static final Map<String, Image> byFile = new HashMap<>();
+
+    private RomCache() {
+    }
+
+    static synchronized Image acquire(String path) throws IOException {
+        File file = new File(path);
+        String fileKey = file.getCanonicalPath() + ":" + file.length() + ":" + file.lastModified();
+        Image image = byFile.get(fileKey);
+        if (image == null) {
+            ByteBuffer mapped;
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            String hash = hash(mapped);
+            image = byHash.get(hash);
+            if (image == null) {
+                image = new Image(hash, mapped);
+                byHash.put(hash, image);
+            }
+            image.files.add(fileKey);
+            byFile.put(fileKey, image);
+        }
+        image.references++;
+        return image;
+    }
+
+    static synchronized void release(Image image) {
+        if (--image.references == 0) {
+            byHash.remove(image.hash);
+            for (String file : image.files) {
+                byFile.remove(file);
+            }
+        }
+    }
+
+    static synchronized int size() {
+        return byHash.size();
+    }
+
+    //<editor-fold desc=" IMPLEMENTATION " defaultstate="collapsed">
+    private static String hash(ByteBuffer data) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(data.duplicate());
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every jvm has SHA-1
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,46 @@
+import java.nio.ByteBuffer;
+
+/**
+ * File created on 10/18/2026.
+ *
+ * No controller: 32KB of rom, and optionally up to 8KB of ram that's always enabled.
+ */
+final class RomOnly implements Mbc {
+    private final ByteBuffer rom;
+    private final byte[] ram;
+
+    RomOnly(ByteBuffer rom, byte[] ram) {
+        this.rom = rom;
+        this.ram = ram;
+    }
+
+    @Override
+    public int read(final int address) {
+        if (address < 0x8000) {
+            return rom.get(address) & 0xFF;
+        }
+        return ram.length == 0 ? 0xFF : ram[(address - 0xA000) & (ram.length - 1)] & 0xFF;
+    }
+
+    @Override
+    public void write(final int address, final int value) {
+        if (address >= 0xA000 && ram.length != 0) {
+            ram[(address - 0xA000) & (ram.length - 1)] = (byte) value;
+        }
+    }
+
+    @Override
+    public int getRomBank() {
+        return 1;
+    }
+
+    @Override
+    public byte[] getMappedRam() {
+        return ram.length == 0 ? null : ram;
+    }
+
+    @Override
+    public int getRamBankOffset() {
+        return 0;
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * File created on 10/18/2026.
+ *
+ * Cycle based event scheduler. The cpu advances one global cycle counter as instructions
+ * consume cycles, and the timer and gpu are only brought up to date when something they
+ * scheduled is due, instead of on every call to consumeClockCycles:
+ *   TIMER  the cycle tima overflows (and each cycle while the overflow is being handled)
+ *   PPU    the cycle the gpu moves to its next mode, or right away after a lcd register
+ *          write so the stat interrupt is looked at again
+ *   DMA    the end of an oam dma, when the cpu gets the memory bus back
+ * Reads and writes of the timer registers catch the timer up first, so it never looks
+ * stale to the program. The gpu's visible state (LY, mode) only ever changes on its own
+ * events, so it doesn't need that.
+ *
+ * Events are checked at the end of every consumeClockCycles, same as the peripherals used
+ * to be stepped, so interrupts are raised on exactly the same instruction boundary.
+ * When several events are due at once they run in Event order, timer first like before.
+ */
+final class Scheduler {
+
+    enum Event {
+        TIMER,
+        PPU,
+        DMA
+    }
+
+    static final long NEVER = Long.MAX_VALUE;
+
+    // an oam dma copies a byte per m-cycle
+    static final int DMA_CYCLES = 160 * 4;
+
+    // the most cyclesUntilNextEvent() hands out at once, a frame. the gpu always has an
+    // event sooner than that, this just keeps the arithmetic in an int.
+    private static final int MAX_SKIP = 70224;
+
+    private static final Event[] EVENTS = Event.values();
+
+    private final Gpu gpu;
+    private MemoryManager mmu; // set once the mmu is attached, see MemoryManager.setScheduler()
+
+    // the global cycle counter, in t-cycles since the cpu was created
+    long now = 0;
+
+    // due cycle of each event, indexed by ordinal. with this few event sources a scan for
+    // the earliest one is cheaper than keeping a heap in order.
+    private final long[] due = new long[EVENTS.length];
+    private long nextEvent = NEVER;
+
+    // the cycle events last ran at
+    long lastEventRun = 0;
+
+    // how far each peripheral has been stepped
+    private long timerSynced = 0;
+    private long gpuSynced = 0;
+
+    Scheduler(Gpu gpu) {
+        this.gpu = gpu;
+        timerChanged();
+        gpuChanged();
+        schedule(Event.DMA, NEVER);
+    }
+
+    void setMemoryManager(MemoryManager mmu) {
+        this.mmu = mmu;
+    }
+
+    // called by the cpu for every cycle it consumes. this is the only place time moves.
+    void advance(final int cycles) {
+        now += cycles;
+        if (now >= nextEvent) {
+            runDueEvents();
+        }
+    }
+
+    // cycles from now until the next event is due, rounded up to a whole number of `step`
+    // cycle chunks. the events are the only things that can raise an interrupt on their
+    // own, so a halted cpu can skip this far ahead in one go.
+    int cyclesUntilNextEvent(final int step) {
+        long cycles = Math.min(nextEvent - now, MAX_SKIP);
+        return cycles <= step ? step : (int) ((cycles + step - 1) / step * step);
+    }
+
+    // brings the timer up to now, before one of its registers is read or written.
+    void syncTimer() {
+        TimerService.getInstance().step(now - timerSynced);
+        timerSynced = now;
+    }
+
+    // the timer's registers were written, work out when it next overflows.
+    void timerChanged() {
+        syncTimer();
+        long cycles = TimerService.getInstance().cyclesUntilOverflow();
+        schedule(Event.TIMER, cycles == NEVER ? NEVER : now + cycles);
+    }
+
+    // brings the gpu's mode clock up to now. can't cross a mode change, that's an event.
+    void syncGpu() {
+        gpu.step((int) (now - gpuSynced));
+        gpuSynced = now;
+    }
+
+    // a lcd register was written. the gpu gets stepped at the end of this instruction,
+    // which is also where the stat interrupt would have been checked before.
+    void gpuChanged() {
+        schedule(Event.PPU, now);
+    }
+
+    // an oam dma was started, the mmu hears back when it's over
+    void dmaStarted() {
+        schedule(Event.DMA, now + DMA_CYCLES);
+    }
+
+    //<editor-fold desc=" IMPLEMENTATION " defaultstate="collapsed">
+    private void schedule(Event event, long cycle) {
+        due[event.ordinal()] = cycle;
+        long next = NEVER;
+        for (long cycleDue : due) {
+            next = Math.min(next, cycleDue);
+        }
+        nextEvent = next;
+    }
+
+    private void runDueEvents() {
+        lastEventRun = now;
+        for (Event event : EVENTS) {
+            if (due[event.ordinal()] <= now) {
+                switch (event) {
+                    case TIMER:
+                        timerChanged();
+                        break;
+                    case PPU:
+                        syncGpu();
+                        schedule(Event.PPU, now + gpu.cyclesUntilModeChange());
+                        break;
+                    case DMA:
+                        schedule(Event.DMA, NEVER);
+                        mmu.dmaFinished();
+                        break;
+                }
+            }
+        }
+    }
+    //</editor-fold>
+}
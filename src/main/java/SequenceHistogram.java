@@ -0,0 +1,148 @@
+import helpers.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * File created on 10/18/2026.
+ *
+ * Runs a rom headless and counts which instruction pairs and triples execute the most,
+ * to pick candidates for Cpu's superinstructions. Only sequences that sit next to each
+ * other in memory count, since those are the only ones that can be fused at decode time.
+ * Fusion is turned off so every step is one instruction.
+ *
+ *     java -cp target/classes SequenceHistogram src/main/resources/tetris.gb [steps] [top]
+ */
+public class SequenceHistogram {
+
+    private static final String[] REGISTERS = { "B", "C", "D", "E", "H", "L", "(HL)", "A" };
+    private static final String[] ALU = { "ADD A,", "ADC A,", "SUB ", "SBC A,", "AND ", "XOR ", "OR ", "CP " };
+    private static final String[] CB_OPS = { "RLC ", "RRC ", "RL ", "RR ", "SLA ", "SRA ", "SWAP ", "SRL " };
+    private static final String[] LOW = {
+            "NOP", "LD BC,nn", "LD (BC),A", "INC BC", "INC B", "DEC B", "LD B,n", "RLCA",
+            "LD (nn),SP", "ADD HL,BC", "LD A,(BC)", "DEC BC", "INC C", "DEC C", "LD C,n", "RRCA",
+            "STOP", "LD DE,nn", "LD (DE),A", "INC DE", "INC D", "DEC D", "LD D,n", "RLA",
+            "JR e", "ADD HL,DE", "LD A,(DE)", "DEC DE", "INC E", "DEC E", "LD E,n", "RRA",
+            "JR NZ,e", "LD HL,nn", "LD (HL+),A", "INC HL", "INC H", "DEC H", "LD H,n", "DAA",
+            "JR Z,e", "ADD HL,HL", "LD A,(HL+)", "DEC HL", "INC L", "DEC L", "LD L,n", "CPL",
+            "JR NC,e", "LD SP,nn", "LD (HL-),A", "INC SP", "INC (HL)", "DEC (HL)", "LD (HL),n", "SCF",
+            "JR C,e", "ADD HL,SP", "LD A,(HL-)", "DEC SP", "INC A", "DEC A", "LD A,n", "CCF" };
+    private static final String[] HIGH = {
+            "RET NZ", "POP BC", "JP NZ,nn", "JP nn", "CALL NZ,nn", "PUSH BC", "ADD A,n", "RST 00",
+            "RET Z", "RET", "JP Z,nn", "CB", "CALL Z,nn", "CALL nn", "ADC A,n", "RST 08",
+            "RET NC", "POP DE", "JP NC,nn", "-", "CALL NC,nn", "PUSH DE", "SUB n", "RST 10",
+            "RET C", "RETI", "JP C,nn", "-", "CALL C,nn", "-", "SBC A,n", "RST 18",
+            "LDH (n),A", "POP HL", "LD (C),A", "-", "-", "PUSH HL", "AND n", "RST 20",
+            "ADD SP,e", "JP (HL)", "LD (nn),A", "-", "-", "-", "XOR n", "RST 28",
+            "LDH A,(n)", "POP AF", "LD A,(C)", "DI", "-", "PUSH AF", "OR n", "RST 30",
+            "LD HL,SP+e", "LD SP,HL", "LD A,(nn)", "EI", "-", "-", "CP n", "RST 38" };
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("USAGE: java SequenceHistogram <rom> [steps (default 20000000)] [top (default 20)]");
+            return;
+        }
+        long steps = args.length > 1 ? Long.parseLong(args[1]) : 20_000_000L;
+        int top = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        Main.skipBootrom = true;
+        Display.getTestInstace();
+        Gpu gpu = new Gpu(Logger.Level.FATAL);
+        MbcManager mbc = new MbcManager(new Cartridge(args[0]), Logger.Level.FATAL);
+        MemoryManager mmu = new MemoryManager(mbc, gpu);
+        Cpu cpu = new Cpu(mmu, gpu, false, Main.idleLoopSkipping, Logger.Level.FATAL);
+        cpu.skipBootrom();
+
+        Map<Integer, long[]> pairs = new HashMap<>();
+        Map<Long, long[]> triples = new HashMap<>();
+        long instructions = 0;
+        int previous = -1;      // opcode of the last instruction, -1 after a jump or interrupt
+        int beforePrevious = -1;
+        int expectedPc = -1;    // where the last instruction ends
+
+        for (long i = 0; i < steps; i++) {
+            int pc = cpu.getRegisterValue("PC");
+            if (cpu.isHalted() || InterruptManager.getInstance().isInterruptPending()) {
+                // no instruction at pc runs this step, or it runs after a jump to a handler
+                cpu.step();
+                previous = -1;
+                continue;
+            }
+
+            int opcode = mmu.readByte(pc);
+            if (opcode == 0xCB) {
+                opcode = 0xCB00 | mmu.readByte((pc + 1) & 0xFFFF);
+            }
+            if (pc != expectedPc) {
+                previous = -1;
+            }
+            if (previous >= 0) {
+                pairs.computeIfAbsent((previous << 16) | opcode, k -> new long[1])[0]++;
+                if (beforePrevious >= 0) {
+                    long key = ((long) beforePrevious << 32) | ((long) previous << 16) | opcode;
+                    triples.computeIfAbsent(key, k -> new long[1])[0]++;
+                }
+            }
+            beforePrevious = previous;
+            previous = opcode;
+            expectedPc = (pc + (opcode > 0xFF ? 2 : DecodeCache.LENGTH[opcode])) & 0xFFFF;
+            instructions++;
+
+            cpu.step();
+        }
+        mbc.close();
+
+        System.out.println(args[0] + ": " + instructions + " instructions in " + steps + " steps");
+        System.out.println("top pairs:");
+        print(pairs, instructions, top, 2);
+        System.out.println("top triples:");
+        print(triples, instructions, top, 3);
+    }
+
+    //<editor-fold desc=" IMPLEMENTATION " defaultstate="collapsed">
+    private static <K extends Number> void print(Map<K, long[]> counts, long instructions, int top, int length) {
+        List<Map.Entry<K, long[]>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        for (Map.Entry<K, long[]> entry : entries.subList(0, Math.min(top, entries.size()))) {
+            long key = entry.getKey().longValue();
+            StringBuilder names = new StringBuilder();
+            StringBuilder opcodes = new StringBuilder();
+            for (int i = length - 1; i >= 0; i--) {
+                int opcode = (int) (key >> (16 * i)) & 0xFFFF;
+                names.append(mnemonic(opcode)).append(i > 0 ? " / " : "");
+                opcodes.append(String.format(opcode > 0xFF ? "%04x " : "%02x ", opcode));
+            }
+            long count = entry.getValue()[0];
+            System.out.println(String.format("  %6.2f%% %10d  %-40s %s", 100.0 * count / instructions, count, names, opcodes));
+        }
+    }
+
+    private static String mnemonic(int opcode) {
+        if (opcode > 0xFF) {
+            int cb = opcode & 0xFF;
+            String register = REGISTERS[cb & 7];
+            switch (cb >> 6) {
+                case 0:  return CB_OPS[cb >> 3] + register;
+                case 1:  return "BIT " + ((cb >> 3) & 7) + "," + register;
+                case 2:  return "RES " + ((cb >> 3) & 7) + "," + register;
+                default: return "SET " + ((cb >> 3) & 7) + "," + register;
+            }
+        }
+        if (opcode < 0x40) {
+            return LOW[opcode];
+        }
+        if (opcode == 0x76) {
+            return "HALT";
+        }
+        if (opcode < 0x80) {
+            return "LD " + REGISTERS[(opcode >> 3) & 7] + "," + REGISTERS[opcode & 7];
+        }
+        if (opcode < 0xC0) {
+            return ALU[(opcode >> 3) & 7] + REGISTERS[opcode & 7];
+        }
+        return HIGH[opcode - 0xC0];
+    }
+    //</editor-fold>
+}
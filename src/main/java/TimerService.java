@@ -34,9 +34,26 @@ public class TimerService {
 
     private int ticksSinceOverflow;
 
-    public void step(int numSteps) {
-        for (int i = 0; i < numSteps; i++) {
-            tick();
+    // advances the timer by numSteps cycles. this isn't called every cycle, the scheduler
+    // only catches the timer up when its registers are accessed or it's about to overflow,
+    // so the gap can be long. stretches where nothing unusual happens are worked out in
+    // one go, only the cycles around an overflow or a TAC glitch are ticked one by one.
+    public void step(long numSteps) {
+        while (numSteps > 0) {
+            if (overflow || previousBit != selectedBit(div)) {
+                tick();
+                numSteps--;
+                continue;
+            }
+
+            long untilOverflow = cyclesUntilOverflow();
+            if (untilOverflow > numSteps) {
+                skip(numSteps);
+                return;
+            }
+            skip(untilOverflow - 1);
+            tick(); // tima overflows on this one
+            numSteps -= untilOverflow;
         }
     }
 
@@ -58,6 +75,27 @@ public class TimerService {
         }
     }
 
+    // cycles until the timer next raises an interrupt or needs ticking one cycle at a time,
+    // for the scheduler. that's when tima overflows, or during an overflow the interrupt and
+    // the end of the reload window, or right after a TAC write that may cause an extra
+    // increment. Scheduler.NEVER when the timer is stopped.
+    long cyclesUntilOverflow() {
+        if (overflow) {
+            // next thing that happens is the interrupt, then the end of the reload window
+            return ticksSinceOverflow < 4 ? 4 - ticksSinceOverflow : 6 - ticksSinceOverflow;
+        }
+        if (previousBit != selectedBit(div)) {
+            return 1;
+        }
+        if ((tac & (1 << 2)) == 0) {
+            return Scheduler.NEVER;
+        }
+
+        // tima goes up when the selected div bit falls, every `period` cycles
+        int period = 1 << (FREQ_TO_BIT[tac & 0b11] + 1);
+        return period - (div & (period - 1)) + (long) (0xff - tima) * period;
+    }
+
     private void incTima() {
         tima++;
         tima %= 0x100;
@@ -105,16 +143,32 @@ public class TimerService {
 
     private void updateDiv(int newDiv) {
         this.div = newDiv;
-        int bitPos = FREQ_TO_BIT[tac & 0b11];
-        //bitPos <<= 2 - 1; // uncomment for double speed mode
-        boolean bit = (div & (1 << bitPos)) != 0;
-        bit &= (tac & (1 << 2)) != 0;
+        boolean bit = selectedBit(div);
         if (!bit && previousBit) {
             incTima();
         }
         previousBit = bit;
     }
 
+    // the div bit tac selects, and'ed with the timer enable. tima goes up when it falls.
+    private boolean selectedBit(int div) {
+        int bitPos = FREQ_TO_BIT[tac & 0b11];
+        //bitPos <<= 2 - 1; // uncomment for double speed mode
+        return (tac & (1 << 2)) != 0 && (div & (1 << bitPos)) != 0;
+    }
+
+    // same as ticking numSteps times when tima doesn't overflow on the way and previousBit
+    // agrees with div: count the falling edges of the selected bit instead.
+    private void skip(long numSteps) {
+        long newDiv = div + numSteps;
+        if ((tac & (1 << 2)) != 0) {
+            int shift = FREQ_TO_BIT[tac & 0b11] + 1;
+            tima += (int) ((newDiv >> shift) - (div >> shift));
+        }
+        div = (int) (newDiv & 0xffff);
+        previousBit = selectedBit(div);
+    }
+
     public void setDivBypass(int value) {
         this.div = value;
     }
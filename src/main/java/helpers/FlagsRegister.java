@@ -15,6 +15,12 @@ public class FlagsRegister extends Register {
         Z
     }
 
+    // the flag bits as masks, for building a whole flags byte at once
+    public static final int FLAG_Z = 0b1000_0000;
+    public static final int FLAG_N = 0b0100_0000;
+    public static final int FLAG_H = 0b0010_0000;
+    public static final int FLAG_C = 0b0001_0000;
+
     public FlagsRegister(String regName, int regSize, int regVal) {
         super(regName, regSize, regVal);
     }
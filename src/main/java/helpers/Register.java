@@ -116,7 +116,7 @@ public class Register {
         }
     }
 
-    private String getName() {
+    public String getName() {
         return this.name;
     }
     public final int getSize() {
@@ -0,0 +1,38 @@
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * File created on 10/18/2026.
+ */
+public class AluTablesTest extends UnitTest {
+
+    @Test
+    public void testRotatesAndShifts() {
+        // spot check a handful of values against hand-worked results.
+        // entries are result | (flags << 8), flags being ZNHC0000.
+        assertEquals(0x01 | (0b0001_0000 << 8), AluTables.RLC[0x80]);
+        assertEquals(0x00 | (0b1000_0000 << 8), AluTables.RLC[0x00]);
+        assertEquals(0x80 | (0b0001_0000 << 8), AluTables.RRC[0x01]);
+        assertEquals(0x00 | (0b1001_0000 << 8), AluTables.RL[0x80]);
+        assertEquals(0x00 | (0b1001_0000 << 8), AluTables.RR[0x01]);
+        assertEquals(0x00 | (0b1001_0000 << 8), AluTables.SLA[0x80]);
+        assertEquals(0xC0 | (0b0001_0000 << 8), AluTables.SRA[0x81]);
+        assertEquals(0x40 | (0b0001_0000 << 8), AluTables.SRL[0x81]);
+        assertEquals(0x21, AluTables.SWAP[0x12]);
+        assertEquals(0b1000_0000 << 8, AluTables.SWAP[0x00]);
+        log("Rotate and shift tables look right.");
+    }
+
+    @Test
+    public void testDaa() {
+        // 0x15 + 0x27 = 0x3C, adjusts to BCD 42
+        assertEquals(0x42, AluTables.DAA[0x3C] & 0xFF);
+        // 0x99 + 0x01 = 0x9A, adjusts to 00 with carry
+        assertEquals(0x00 | (0b1001_0000 << 8), AluTables.DAA[0x9A]);
+        // 0x42 - 0x15 = 0x2D with half borrow, adjusts to BCD 27 and keeps N
+        int nh = 0b110;
+        assertEquals(0x27 | (0b0100_0000 << 8), AluTables.DAA[(nh << 8) | 0x2D]);
+        log("DAA table looks right.");
+    }
+}
@@ -0,0 +1,57 @@
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * File created on 10/18/2026.
+ */
+public class BatterySaveTest extends UnitTest {
+
+    @Test
+    public void testRamSurvivesReopening() throws Exception {
+        File file = File.createTempFile("battery", ".sav");
+        file.deleteOnExit();
+        Files.write(file.toPath(), new byte[0]);
+
+        byte[] ram = new byte[0x8000];
+        BatterySave save = new BatterySave(file, ram, 4);
+        assertFalse(save.hasSaved(4));
+        ram[0x0002] = 50;
+        ram[0x7FFF] = 123;
+        save.extra().putInt(0, 0x12345678);
+        save.close();
+        assertEquals(0x8000 + 4, file.length());
+
+        byte[] loaded = new byte[0x8000];
+        BatterySave reopened = new BatterySave(file, loaded, 4);
+        assertEquals(50, loaded[0x0002]);
+        assertEquals(123, loaded[0x7FFF]);
+        assertEquals(0x12345678, reopened.extra().getInt(0));
+        reopened.close();
+        log("Battery ram and the bytes after it came back from the .sav file.");
+    }
+
+    @Test
+    public void testFlusherWritesChangedPages() throws Exception {
+        File file = File.createTempFile("battery", ".sav");
+        file.deleteOnExit();
+
+        byte[] ram = new byte[0x2000];
+        BatterySave save = new BatterySave(file, ram, 4);
+        save.start(10, extra -> extra.putInt(0x12345678));
+        ram[0x1234] = 77;
+        long deadline = System.currentTimeMillis() + 5000;
+        while (Files.readAllBytes(file.toPath())[0x1234] != 77 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        byte[] saved = Files.readAllBytes(file.toPath());
+        assertEquals(77, saved[0x1234]);
+        assertEquals(0x78, saved[0x2000]); // little endian
+        save.close();
+        log("The flusher wrote a changed page and the extra bytes without being closed.");
+    }
+}
@@ -175,4 +175,180 @@ public class CpuTest extends UnitTest {
         }
         System.out.println();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFusedCountdownLoop() {
+        InterruptManager.reset();
+
+        // C000: DEC B / JR NZ,-3 is fused, so each trip around the loop is a single step
+        mmu.writeByte(0xC000, 0x05);
+        mmu.writeByte(0xC001, 0x20);
+        mmu.writeByte(0xC002, 0xFD);
+        cpuUut.setRegisterValue("B", 3);
+        cpuUut.setRegisterValue("PC", 0xC000);
+
+        cpuUut.step();
+        assertEquals(2, cpuUut.getRegisterValue("B"));
+        assertEquals(0xC000, cpuUut.getRegisterValue("PC"));
+        cpuUut.step();
+        assertEquals(1, cpuUut.getRegisterValue("B"));
+        assertEquals(0xC000, cpuUut.getRegisterValue("PC"));
+        cpuUut.step();
+        assertEquals(0, cpuUut.getRegisterValue("B"));
+        assertEquals(0xC003, cpuUut.getRegisterValue("PC"));
+    }
+
+    @Test
+    public void testHaltSkipsToNextEvent() {
+        Display.reset();
+        TimerService.reset();
+        InterruptManager.reset();
+        Display.getTestInstace();
+        Gpu gpu = new Gpu(Logger.Level.FATAL);
+        MemoryManager haltMmu = new MemoryManager(cartMbc, gpu);
+        haltMmu.inBootrom = false;
+        Cpu cpu = new Cpu(haltMmu, gpu, Logger.Level.FATAL);
+
+        // C000: HALT, with only vblank enabled and IME off
+        haltMmu.writeByte(0xC000, 0x76);
+        haltMmu.writeByte(0xFFFF, 0x01);
+        cpu.setRegisterValue("PC", 0xC000);
+        cpu.step();
+        assertEquals(true, cpu.isHalted());
+
+        // vblank is over 60000 cycles away, that used to be one step per 4 of them
+        int steps = 0;
+        while (cpu.isHalted()) {
+            cpu.step();
+            steps++;
+        }
+        assertEquals(143, haltMmu.readByte(0xFF44));
+        assertEquals(0xC002, cpu.getRegisterValue("PC")); // the waking step runs the NOP after HALT
+        log("Woke up at vblank after " + steps + " halted steps.");
+        assertEquals(true, steps < 1000);
+    }
+
+    @Test
+    public void testHaltSkipBoundedByJoypad() {
+        Display.reset();
+        TimerService.reset();
+        InterruptManager.reset();
+        Display.getTestInstace();
+        Gpu gpu = new Gpu(Logger.Level.FATAL);
+        MemoryManager haltMmu = new MemoryManager(cartMbc, gpu);
+        haltMmu.inBootrom = false;
+        Cpu cpu = new Cpu(haltMmu, gpu, Logger.Level.FATAL);
+
+        // C000: HALT, with only the joypad interrupt enabled and IME off
+        haltMmu.writeByte(0xC000, 0x76);
+        haltMmu.writeByte(0xFFFF, 0x10);
+        cpu.setRegisterValue("PC", 0xC000);
+        cpu.step();
+        assertEquals(true, cpu.isHalted());
+
+        // div counts every 256 cycles, so a skip of a scanline or less moves it by 2 at most
+        haltMmu.writeByte(0xFF04, 0x00);
+        cpu.step();
+        assertEquals(true, haltMmu.readByte(0xFF04) <= 2);
+
+        // a key press from the ui thread wakes it on the next step
+        InterruptManager.getInstance().raiseInterrupt(InterruptManager.InterruptTypes.JOYPAD_INPUT);
+        cpu.step();
+        assertEquals(false, cpu.isHalted());
+        log("Halted skip stayed within a scanline while the joypad was enabled.");
+    }
+
+    @Test
+    public void testIdleLoopSkipping() {
+        // C000: LDH A,(44) / CP 90 / JR NZ,-6
+        assertPollLoopSkipped("Vblank wait", new int[] {0xF0, 0x44, 0xFE, 0x90, 0x20, 0xFA}, 0);
+    }
+
+    @Test
+    public void testIdleLoopSkippingBitHl() {
+        // C000: BIT 7,(HL) / JR Z,-4, with HL on LY. BIT n,(HL) costs more than BIT n,r.
+        assertPollLoopSkipped("BIT 7,(HL) wait", new int[] {0xCB, 0x7E, 0x28, 0xFC}, 0xFF44);
+    }
+
+    @Test
+    public void testJoypadLoopNotSkipped() {
+        // C000: LDH A,(00) / AND 0F / CP 0F / JR Z,-8, waiting for a button that's never pressed.
+        // key presses aren't events, so the loop has to keep reading JOYP.
+        int[] program = {0xF0, 0x00, 0xE6, 0x0F, 0xFE, 0x0F, 0x28, 0xF8};
+        int[] skipped = runFor(true, program, 10000);
+        int[] ran = runFor(false, program, 10000);
+        assertEquals(0xC000, skipped[0] & 0xFFF8); // still waiting
+        for (int i = 0; i < ran.length; i++) {
+            assertEquals(ran[i], skipped[i]);
+        }
+        log("Button wait loop ran in full.");
+    }
+
+    private void assertPollLoopSkipped(String name, int[] program, int hl) {
+        int[] skipped = runPollLoop(true, program, hl);
+        int[] ran = runPollLoop(false, program, hl);
+        log(name + " took " + skipped[0] + " steps skipping idle loops, " + ran[0] + " without.");
+        // the gpu's mode changes are events too, so only part of each line gets skipped
+        assertEquals(true, skipped[0] < ran[0]);
+        // it left the loop in the same state, at the same point in time
+        for (int i = 1; i < ran.length - 1; i++) {
+            assertEquals(ran[i], skipped[i]);
+        }
+        // and the skipped cycles were counted for the frame they were skipped in
+        assertEquals(true, skipped[skipped.length - 1] > 0);
+        assertEquals(0, ran[ran.length - 1]);
+    }
+
+    // steps a poll loop at C000 until it exits, returns the steps it took, the state afterwards
+    // and the idle cycles skipped in that frame
+    private int[] runPollLoop(boolean skipIdleLoops, int[] program, int hl) {
+        Display.reset();
+        TimerService.reset();
+        InterruptManager.reset();
+        Display.getTestInstace();
+        Gpu gpu = new Gpu(Logger.Level.FATAL);
+        MemoryManager loopMmu = new MemoryManager(cartMbc, gpu);
+        loopMmu.inBootrom = false;
+        Cpu cpu = new Cpu(loopMmu, gpu, Main.fuseInstructions, skipIdleLoops, Logger.Level.FATAL);
+
+        for (int i = 0; i < program.length; i++) {
+            loopMmu.writeByte(0xC000 + i, program[i]);
+        }
+        cpu.setRegisterValue("H", hl >> 8);
+        cpu.setRegisterValue("L", hl & 0xFF);
+        cpu.setRegisterValue("PC", 0xC000);
+        int steps = 0;
+        while (cpu.getRegisterValue("PC") != 0xC000 + program.length) {
+            cpu.step();
+            steps++;
+        }
+        int[] state = {steps, cpu.getRegisterValue("A"), cpu.getRegisterValue("Flags"),
+                loopMmu.readByte(0xFF04), loopMmu.readByte(0xFF41), 0};
+        // move on to the next frame so the one the loop ran in is the last whole frame
+        cpu.consumeClockCycles(70224);
+        state[state.length - 1] = (int) cpu.getIdleCyclesSkippedLastFrame();
+        return state;
+    }
+
+    // steps a loop at C000 `steps` times, returns where it got to: PC, A, LY and DIV
+    private int[] runFor(boolean skipIdleLoops, int[] program, int steps) {
+        Display.reset();
+        TimerService.reset();
+        InterruptManager.reset();
+        Display.getTestInstace();
+        Gpu gpu = new Gpu(Logger.Level.FATAL);
+        MemoryManager loopMmu = new MemoryManager(cartMbc, gpu);
+        loopMmu.inBootrom = false;
+        Cpu cpu = new Cpu(loopMmu, gpu, Main.fuseInstructions, skipIdleLoops, Logger.Level.FATAL);
+
+        for (int i = 0; i < program.length; i++) {
+            loopMmu.writeByte(0xC000 + i, program[i]);
+        }
+        cpu.setRegisterValue("PC", 0xC000);
+        for (int i = 0; i < steps; i++) {
+            cpu.step();
+        }
+        return new int[] {cpu.getRegisterValue("PC"), cpu.getRegisterValue("A"),
+                loopMmu.readByte(0xFF44), loopMmu.readByte(0xFF04)};
+    }
+}
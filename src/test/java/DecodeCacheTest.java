@@ -0,0 +1,130 @@
+import helpers.Logger;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * File created on 10/18/2026.
+ */
+public class DecodeCacheTest extends UnitTest {
+
+    private MemoryManager mmu;
+    private DecodeCache cache;
+    private Runnable nop = () -> { };
+    private Runnable fusedNop = () -> { };
+
+    @Before
+    public void setUp() {
+        MbcManager cartMbc = new MbcManager(new Cartridge("src/test/resources/gb-test-roms/cpu_instrs/cpu_instrs.gb"), Logger.Level.FATAL);
+        mmu = new MemoryManager(cartMbc);
+        mmu.inBootrom = false;
+
+        Runnable[] handlers = new Runnable[0x100];
+        Arrays.fill(handlers, nop);
+        Map<Integer, Runnable> fused = new HashMap<>();
+        fused.put(DecodeCache.sequence(0x05, 0x20), fusedNop);
+        cache = new DecodeCache(mmu, cartMbc, handlers, handlers, fused);
+        mmu.setDecodeCache(cache);
+
+        // C000: LD A,5 / CALL 1234 / BIT 0,(HL) / DEC B / JR NZ,-3
+        int[] code = { 0x3E, 0x05, 0xCD, 0x34, 0x12, 0xCB, 0x46, 0x05, 0x20, 0xFD };
+        for (int i = 0; i < code.length; i++) {
+            mmu.writeByte(0xC000 + i, code[i]);
+        }
+    }
+
+    @Test
+    public void testDecode() {
+        DecodeCache.Instruction ld = cache.fetch(0xC000);
+        assertEquals(0x3E, ld.opcode);
+        assertEquals(0x05, ld.immediate);
+        assertEquals(2, ld.length);
+        assertEquals(0xC001, ld.operandPc);
+
+        DecodeCache.Instruction call = cache.fetch(0xC002);
+        assertEquals(0x1234, call.immediate);
+        assertEquals(3, call.length);
+        assertEquals(true, call.endsBlock);
+
+        DecodeCache.Instruction bit = cache.fetch(0xC005);
+        assertEquals(0xCB46, bit.opcode);
+        assertEquals(0xC007, bit.operandPc);
+        log("Instructions decoded.");
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        DecodeCache.Instruction first = cache.fetch(0xC000);
+        assertSame(first, cache.fetch(0xC000));
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        log("Second fetch came from the cache.");
+    }
+
+    @Test
+    public void testWriteToOperandInvalidates() {
+        cache.fetch(0xC000);
+        cache.fetch(0xC002);
+
+        mmu.writeByte(0xC004, 0x56); // high byte of the CALL target
+        assertEquals(0x05, cache.fetch(0xC000).immediate);
+        assertEquals(0x5634, cache.fetch(0xC002).immediate);
+        assertEquals(3, cache.getMisses());
+        log("Rewritten operand was decoded again.");
+    }
+
+    @Test
+    public void testInvalidateClearsWholeRecord() {
+        cache.fetch(0xC000);
+        cache.fetch(0xC002);
+
+        mmu.writeByte(0xC003, 0x00); // low byte of the CALL target
+        assertEquals(false, cache.isCode(0xC002));
+        assertEquals(false, cache.isCode(0xC004));
+        assertEquals(true, cache.isCode(0xC001)); // LD A,5 is still cached
+
+        // the JR under the fused DEC B / JR NZ keeps its own record
+        cache.fetch(0xC007);
+        cache.fetch(0xC008);
+        mmu.writeByte(0xC007, 0x04);
+        assertEquals(false, cache.isCode(0xC007));
+        assertEquals(true, cache.isCode(0xC009));
+        log("Every byte of the removed record was cleared.");
+    }
+
+    @Test
+    public void testFusedSequence() {
+        DecodeCache.Instruction loop = cache.fetch(0xC007);
+        assertSame(fusedNop, loop.handler);
+        assertEquals(2, loop.parts);
+        assertEquals(0xFD, loop.immediate);
+        assertEquals(3, loop.length);
+        assertEquals(true, loop.endsBlock);
+
+        // changing the JR opcode breaks up the pair
+        mmu.writeByte(0xC008, 0x28);
+        assertEquals(1, cache.fetch(0xC007).parts);
+        log("DEC B / JR NZ was fused.");
+    }
+
+    @Test
+    public void testFetchDuringDma() {
+        Scheduler scheduler = new Scheduler(new Gpu(Logger.Level.FATAL));
+        mmu.setScheduler(scheduler);
+        DecodeCache.Instruction ld = cache.fetch(0xC000);
+
+        mmu.writeByte(0xFF46, 0xC1);
+        // only hram is on the bus, so wram reads back as RST 38
+        assertEquals(0xFF, cache.fetch(0xC000).opcode);
+
+        scheduler.advance(Scheduler.DMA_CYCLES);
+        assertSame(ld, cache.fetch(0xC000));
+        log("Cached wram code wasn't fetched while the dma had the bus.");
+    }
+}
@@ -0,0 +1,44 @@
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * File created on 10/18/2026.
+ */
+public class GpuTest extends UnitTest {
+
+    @Test
+    public void testSpritesPerLine() {
+        Gpu gpu = new Gpu();
+        byte[] oam = new byte[0xA0];
+        // 12 sprites on lines 0-7, the first at the far right and the rest right to left
+        for (int sprite = 0; sprite < 12; sprite++) {
+            oam[sprite * 4] = 16;
+            oam[sprite * 4 + 1] = (byte) (sprite == 0 ? 160 : 100 - sprite * 8);
+        }
+        // one more further down, sharing its x with sprite 1
+        oam[12 * 4] = 16 + 8;
+        oam[12 * 4 + 1] = 100 - 8;
+        gpu.buildSprites(oam);
+
+        // the first 10 in oam, smallest x first. 10 and 11 are dropped.
+        assertArrayEquals(new int[] { 9, 8, 7, 6, 5, 4, 3, 2, 1, 0 }, gpu.spritesOnLine(0));
+        assertArrayEquals(new int[] { 9, 8, 7, 6, 5, 4, 3, 2, 1, 0 }, gpu.spritesOnLine(7));
+        assertArrayEquals(new int[] { 12 }, gpu.spritesOnLine(8));
+
+        // 8x16 sprites reach down a tile further
+        gpu.lcdControl.setLcdControl(0x91 | 0b0000_0100);
+        assertArrayEquals(new int[] { 9, 8, 7, 6, 5, 4, 3, 2, 1, 0 }, gpu.spritesOnLine(15));
+        assertArrayEquals(new int[] { 12 }, gpu.spritesOnLine(16));
+
+        // a tie on x goes to the lower oam index
+        oam = new byte[0xA0];
+        for (int sprite = 0; sprite < 3; sprite++) {
+            oam[sprite * 4] = 16;
+            oam[sprite * 4 + 1] = (byte) (sprite == 2 ? 20 : 40);
+        }
+        gpu.buildSprites(oam);
+        assertArrayEquals(new int[] { 2, 0, 1 }, gpu.spritesOnLine(0));
+        log("Sprites were binned 10 to a line in priority order.");
+    }
+}
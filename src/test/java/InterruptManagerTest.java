@@ -85,4 +85,24 @@ public class InterruptManagerTest extends UnitTest {
 
     }
 
+    @Test
+    public void testNextInterruptByPriority() {
+        InterruptManager.reset();
+
+        getIM().enableInterrupt(0b0001_1111);
+        getIM().raiseInterrupt(InterruptManager.InterruptTypes.JOYPAD_INPUT);
+        getIM().raiseInterrupt(InterruptManager.InterruptTypes.TIMER_OVERFLOW);
+        assertEquals(null, getIM().getNextInterrupt()); // IME is off
+
+        getIM().masterEnable();
+        assertEquals(InterruptManager.InterruptTypes.TIMER_OVERFLOW, getIM().getNextInterrupt());
+
+        getIM().raiseInterrupt(InterruptManager.InterruptTypes.VBLANK);
+        assertEquals(InterruptManager.InterruptTypes.VBLANK, getIM().getNextInterrupt());
+
+        getIM().disableInterrupt(InterruptManager.InterruptTypes.VBLANK);
+        getIM().clearInterrupt(InterruptManager.InterruptTypes.TIMER_OVERFLOW);
+        assertEquals(InterruptManager.InterruptTypes.JOYPAD_INPUT, getIM().getNextInterrupt());
+    }
+
 }
\ No newline at end of file
@@ -1,5 +1,8 @@
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -79,4 +82,111 @@ public class MbcManagerTest extends UnitTest {
         cartMbc.mbcWrite(0x1FFF, 0x0); // disable RAM
         assertEquals(255, cartMbc.mbcRead(0xA002));
     }
+
+    @Test
+    public void testMbc5RomBankSwitch() {
+        // 512 banks of 16KB, each starting with its own bank number
+        ByteBuffer rom = ByteBuffer.allocate(0x200 * 0x4000);
+        for (int bank = 0; bank < 0x200; bank++) {
+            rom.put(bank * 0x4000, (byte) bank);
+            rom.put(bank * 0x4000 + 1, (byte) (bank >> 8));
+        }
+        Mbc mbc = new Mbc5(rom, new byte[0x20000], false);
+        assertEquals(1, mbc.read(0x4000));
+
+        mbc.write(0x2000, 0x00); // unlike mbc1, bank 0 can be selected
+        assertEquals(0, mbc.getRomBank());
+        assertEquals(0, mbc.read(0x4000));
+
+        mbc.write(0x2000, 0x34);
+        mbc.write(0x3000, 0x01); // bit 8
+        assertEquals(0x134, mbc.getRomBank());
+        assertEquals(0x34, mbc.read(0x4000));
+        assertEquals(0x01, mbc.read(0x4001));
+
+        mbc.write(0x2000, 0xFF); // leaves bit 8 alone
+        assertEquals(0x1FF, mbc.getRomBank());
+
+        // 16 ram banks, only readable while enabled
+        mbc.write(0x0000, 0x0A);
+        mbc.write(0x4000, 0x0F);
+        mbc.write(0xA000, 77);
+        assertEquals(0x1E000, mbc.getRamBankOffset());
+        assertEquals(77, mbc.read(0xA000));
+        mbc.write(0x4000, 0x00);
+        assertEquals(0, mbc.read(0xA000));
+        mbc.write(0x0000, 0x00);
+        assertEquals(0xFF, mbc.read(0xA000));
+        log("MBC5 selected all 9 bits of rom bank and all 16 ram banks.");
+    }
+
+    @Test
+    public void testMbc5Rumble() {
+        Mbc5 mbc = new Mbc5(ByteBuffer.allocate(0x8000), new byte[0x10000], true);
+        mbc.write(0x4000, 0x0F); // no listener, nothing happens
+        mbc.write(0x4000, 0x00);
+
+        StringBuilder motor = new StringBuilder();
+        mbc.setRumbleListener(on -> motor.append(on ? '1' : '0'));
+        mbc.write(0x4000, 0x0B); // on, ram bank 3
+        mbc.write(0x4000, 0x0A); // still on, ram bank 2
+        mbc.write(0x4000, 0x02); // off
+        assertEquals("10", motor.toString());
+        assertEquals(2 * 0x2000, mbc.getRamBankOffset());
+        log("MBC5 rumble reported motor changes only.");
+    }
+
+    @Test
+    public void testMbc3Clock() {
+        long[] cycles = new long[1];
+        RealTimeClock clock = new RealTimeClock(false);
+        clock.setCycleCounter(() -> cycles[0]);
+        Mbc mbc = new Mbc3(ByteBuffer.allocate(0x8000), new byte[0x8000], clock);
+        mbc.write(0x0000, 0x0A);
+
+        // a day, an hour, a minute and a second later, nothing shows until it's latched
+        cycles[0] = 4194304L * (86400 + 3600 + 60 + 1);
+        mbc.write(0x4000, 0x08);
+        assertEquals(0, mbc.read(0xA000));
+        mbc.write(0x6000, 0x00);
+        mbc.write(0x6000, 0x01);
+        int[] expected = { 1, 1, 1, 1, 0 };
+        for (int register = 0; register < 5; register++) {
+            mbc.write(0x4000, 0x08 + register);
+            assertEquals(expected[register], mbc.read(0xA000));
+        }
+
+        // halted, time stands still
+        mbc.write(0xA000, 0x40);
+        cycles[0] += 4194304L * 30;
+        mbc.write(0x6000, 0x00);
+        mbc.write(0x6000, 0x01);
+        mbc.write(0x4000, 0x08);
+        assertEquals(1, mbc.read(0xA000));
+
+        // the day counter wraps after 511 days and sets the carry
+        mbc.write(0x4000, 0x0C);
+        mbc.write(0xA000, 0x01);
+        mbc.write(0x4000, 0x0B);
+        mbc.write(0xA000, 0xFF);
+        cycles[0] += 4194304L * 86400;
+        mbc.write(0x6000, 0x00);
+        mbc.write(0x6000, 0x01);
+        assertEquals(0x00, mbc.read(0xA000));
+        mbc.write(0x4000, 0x0C);
+        assertEquals(0x80, mbc.read(0xA000));
+
+        // saved after the ram and loaded back
+        ByteBuffer save = ByteBuffer.allocate(RealTimeClock.SAVE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        clock.save(save);
+        save.flip();
+        RealTimeClock loaded = new RealTimeClock(false);
+        loaded.load(save);
+        loaded.latch(0x00);
+        loaded.latch(0x01);
+        for (int register = 0; register < 5; register++) {
+            assertEquals(clock.read(register), loaded.read(register));
+        }
+        log("MBC3 clock counted, halted, wrapped and survived a save.");
+    }
 }
@@ -1,7 +1,11 @@
 import helpers.Logger;
 
+import org.junit.Test;
+
 import java.util.Random;
 
+import static org.junit.Assert.assertEquals;
+
 /**
  * Created by Pablo Canseco on 12/24/2017.
  */
@@ -11,5 +15,83 @@ public class MemoryManagerTest extends UnitTest {
     private MemoryManager mmu = new MemoryManager(cartMbc);
     private Random rng = new Random();
 
+    @Test
+    public void testBootromIsUnmappedAtPc100() {
+        Cartridge cart = new Cartridge("src/main/resources/tetris.gb", true);
+        MemoryManager bootMmu = new MemoryManager(new MbcManager(cart, Logger.Level.FATAL));
+
+        assertEquals(0x31, bootMmu.readByte(0x0000)); // LD SP,FFFE
+        bootMmu.readByte(0x0100);
+        assertEquals(false, bootMmu.inBootrom);
+        assertEquals(cart.readFromAddress(0x0000), bootMmu.readByte(0x0000));
+        log("Rom bank 0 was mapped over the bootrom.");
+    }
+
+    @Test
+    public void testPagesFollowBankSwitches() {
+        Cartridge cart = new Cartridge("src/main/resources/pokebluejp.gb", true);
+        MemoryManager mbcMmu = new MemoryManager(new MbcManager(cart, Logger.Level.FATAL));
+        mbcMmu.inBootrom = false;
+
+        assertEquals(cart.readFromAddress(0x4123), mbcMmu.readByte(0x4123));
+        mbcMmu.writeByte(0x2000, 5);
+        assertEquals(cart.readFromAddress(5 * 0x4000 + 0x123), mbcMmu.readByte(0x4123));
+
+        assertEquals(0xFF, mbcMmu.readByte(0xA010)); // ram starts out disabled
+        mbcMmu.writeByte(0x0000, 0x0A);
+        mbcMmu.writeByte(0xA010, 42);
+        assertEquals(42, mbcMmu.readByte(0xA010));
+        mbcMmu.writeByte(0x6000, 1); // ram banking mode
+        mbcMmu.writeByte(0x4000, 1);
+        assertEquals(0, mbcMmu.readByte(0xA010));
+        mbcMmu.writeByte(0x4000, 0);
+        assertEquals(42, mbcMmu.readByte(0xA010));
+        mbcMmu.writeByte(0x0000, 0x00);
+        assertEquals(0xFF, mbcMmu.readByte(0xA010));
+
+        mbcMmu.writeByte(0xC123, 7);
+        assertEquals(7, mbcMmu.readByte(0xE123)); // echo
+        log("Rom and ram pages followed the mbc.");
+    }
+
+    @Test
+    public void testIoRegisters() {
+        InterruptManager.reset();
+        mmu.writeByte(0xFF0F, 0x01);
+        assertEquals(0xE1, mmu.readByte(0xFF0F)); // the top three bits aren't wired up
+        mmu.writeByte(0xFF24, 0x77);
+        assertEquals(0x77, mmu.readByte(0xFF24)); // sound registers read back what was written
+        mmu.writeByte(0xFF1C, 0x20);
+        assertEquals(0xBF, mmu.readByte(0xFF1C));
+        assertEquals(0xFF, mmu.readByte(0xFF4C)); // nothing there
+        mmu.writeByte(0xFF42, 0x12);
+        assertEquals(0x12, mmu.readByte(0xFF42));
+        log("Io registers read back with their unused bits set.");
+    }
+
+    @Test
+    public void testOamDma() {
+        Gpu gpu = new Gpu(Logger.Level.FATAL);
+        MemoryManager dmaMmu = new MemoryManager(cartMbc, gpu);
+        Scheduler scheduler = new Scheduler(gpu);
+        dmaMmu.setScheduler(scheduler);
+        for (int i = 0; i < 160; i++) {
+            dmaMmu.writeByte(0xC100 + i, i);
+        }
+        dmaMmu.writeByte(0xFF80, 0x42);
+
+        dmaMmu.writeByte(0xFF46, 0xC1);
+        // only io and hram can be reached while the transfer runs
+        assertEquals(0xFF, dmaMmu.readByte(0xC100));
+        assertEquals(0xFF, dmaMmu.readByte(0xFE00));
+        assertEquals(0x42, dmaMmu.readByte(0xFF80));
+        dmaMmu.writeByte(0xC100, 0x99);
 
+        scheduler.advance(Scheduler.DMA_CYCLES);
+        assertEquals(0, dmaMmu.readByte(0xC100));
+        for (int i = 0; i < 160; i++) {
+            assertEquals(i, dmaMmu.readByte(0xFE00 + i));
+        }
+        log("Oam dma copied 160 bytes and gave the bus back.");
+    }
 }
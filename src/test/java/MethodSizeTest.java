@@ -0,0 +1,114 @@
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * File created on 10/18/2026.
+ *
+ * Keeps the cpu's methods small enough for hotspot to compile. Anything over
+ * HugeMethodLimit (8000 bytes of bytecode) is never JIT compiled and runs in the
+ * interpreter for the life of the emulator, which is what the old one-big-switch
+ * opcode methods used to do. Methods over FreqInlineSize (325 bytes) still compile,
+ * but won't be inlined into their callers, so those are reported as warnings.
+ */
+public class MethodSizeTest extends UnitTest {
+    private static final int HUGE_METHOD_LIMIT = 8000;
+    private static final int FREQ_INLINE_SIZE = 325;
+
+    @Test
+    public void testCpuMethodsAreCompilable() throws IOException {
+        Map<String, Integer> sizes = readBytecodeSizes(Cpu.class);
+        assertTrue("no methods found in Cpu.class", sizes.size() > 0);
+
+        boolean tooBig = false;
+        for (Map.Entry<String, Integer> method : sizes.entrySet()) {
+            if (method.getValue() > HUGE_METHOD_LIMIT) {
+                error("Cpu." + method.getKey() + " is " + method.getValue() + " bytes, hotspot won't compile it.");
+                tooBig = true;
+            }
+            else if (method.getValue() > FREQ_INLINE_SIZE) {
+                warning("Cpu." + method.getKey() + " is " + method.getValue() + " bytes, too big to inline.");
+            }
+        }
+        if (tooBig) {
+            fail("Cpu has methods over the " + HUGE_METHOD_LIMIT + " byte HugeMethodLimit.");
+        }
+        log("Checked " + sizes.size() + " methods.");
+    }
+
+    // just enough of a class file reader to get at each method's Code attribute.
+    private Map<String, Integer> readBytecodeSizes(Class<?> type) throws IOException {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+
+        try (InputStream stream = type.getResourceAsStream(type.getSimpleName() + ".class")) {
+            DataInputStream in = new DataInputStream(stream);
+            in.readInt();                // magic
+            in.readUnsignedShort();      // minor version
+            in.readUnsignedShort();      // major version
+
+            // constant pool, only the utf8 entries are needed for names
+            int constantCount = in.readUnsignedShort();
+            String[] utf8 = new String[constantCount];
+            for (int i = 1; i < constantCount; i++) {
+                int tag = in.readUnsignedByte();
+                switch (tag) {
+                    case 1:  utf8[i] = in.readUTF(); break;          // Utf8
+                    case 3: case 4: in.skipBytes(4); break;          // Integer, Float
+                    case 5: case 6: in.skipBytes(8); i++; break;     // Long, Double take two slots
+                    case 7: case 8: case 16: in.skipBytes(2); break; // Class, String, MethodType
+                    case 15: in.skipBytes(3); break;                 // MethodHandle
+                    case 9: case 10: case 11: case 12: case 18:      // refs, NameAndType, InvokeDynamic
+                        in.skipBytes(4);
+                        break;
+                    default:
+                        throw new IOException("Unknown constant pool tag " + tag);
+                }
+            }
+
+            in.skipBytes(6); // access flags, this class, super class
+            in.skipBytes(2 * in.readUnsignedShort()); // interfaces
+
+            int fieldCount = in.readUnsignedShort();
+            for (int i = 0; i < fieldCount; i++) {
+                in.skipBytes(6);
+                skipAttributes(in);
+            }
+
+            int methodCount = in.readUnsignedShort();
+            for (int i = 0; i < methodCount; i++) {
+                in.readUnsignedShort(); // access flags
+                String name = utf8[in.readUnsignedShort()] + utf8[in.readUnsignedShort()];
+                int attributeCount = in.readUnsignedShort();
+                for (int a = 0; a < attributeCount; a++) {
+                    String attribute = utf8[in.readUnsignedShort()];
+                    int length = in.readInt();
+                    if (attribute.equals("Code")) {
+                        in.skipBytes(4); // max stack, max locals
+                        int codeLength = in.readInt();
+                        sizes.put(name, codeLength);
+                        in.skipBytes(length - 8);
+                    }
+                    else {
+                        in.skipBytes(length);
+                    }
+                }
+            }
+        }
+
+        return sizes;
+    }
+    private void skipAttributes(DataInputStream in) throws IOException {
+        int attributeCount = in.readUnsignedShort();
+        for (int a = 0; a < attributeCount; a++) {
+            in.skipBytes(2);
+            in.skipBytes(in.readInt());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+import helpers.Logger;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * File created on 10/18/2026.
+ */
+public class RomCacheTest extends UnitTest {
+
+    // a copy of tetris with the last byte changed, so no other test has it cached already
+    private File uniqueRom() throws Exception {
+        byte[] rom = Files.readAllBytes(new File("src/main/resources/tetris.gb").toPath());
+        rom[rom.length - 1] ^= 0x5A;
+        File file = File.createTempFile("tetris", ".gb");
+        file.deleteOnExit();
+        Files.write(file.toPath(), rom);
+        return file;
+    }
+
+    @Test
+    public void testSameRomIsShared() throws Exception {
+        File rom = uniqueRom();
+        int before = RomCache.size();
+        Cartridge first = new Cartridge(rom.getPath());
+        Cartridge second = new Cartridge(rom.getPath());
+        assertEquals(before + 1, RomCache.size());
+
+        // a copy under another name has the same contents, so it gets the same image
+        File copy = File.createTempFile("tetris", ".gb");
+        copy.deleteOnExit();
+        Files.copy(rom.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Cartridge third = new Cartridge(copy.getPath());
+        assertEquals(before + 1, RomCache.size());
+
+        first.close();
+        second.close();
+        assertEquals(before + 1, RomCache.size());
+        assertEquals(0x00, third.readFromAddress(0x0147)); // still readable, ROM only
+        third.close();
+        assertEquals(before, RomCache.size());
+        log("Three cartridges shared one rom image until the last one closed.");
+    }
+
+    @Test
+    public void testManagerClosesCartridge() throws Exception {
+        File rom = uniqueRom();
+        int before = RomCache.size();
+        MbcManager mbc = new MbcManager(new Cartridge(rom.getPath()), Logger.Level.FATAL);
+        assertEquals(before + 1, RomCache.size());
+        mbc.close();
+        assertEquals(before, RomCache.size());
+        log("Closing the mbc let go of its cartridge's rom image.");
+    }
+}
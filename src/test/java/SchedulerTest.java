@@ -0,0 +1,67 @@
+import helpers.Logger;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * File created on 10/18/2026.
+ */
+public class SchedulerTest extends UnitTest {
+
+    private Gpu gpu;
+    private Scheduler scheduler;
+    private TimerService timer;
+
+    @Before
+    public void setUp() {
+        TimerService.reset();
+        InterruptManager.reset();
+        timer = TimerService.getInstance();
+        gpu = new Gpu(Logger.Level.FATAL);
+        scheduler = new Scheduler(gpu);
+    }
+
+    private boolean timerInterruptRaised() {
+        return (InterruptManager.getInstance().getInterruptsRaised() & 0b100) != 0;
+    }
+
+    @Test
+    public void testTimerOverflowIsScheduled() {
+        timer.setControl(0b0000_0101); // enabled, 262144Hz
+        timer.setCounter(0xff);
+        timer.setModulo(0x42);
+        scheduler.timerChanged();
+
+        // tima overflows 16 cycles in, the interrupt follows a few cycles later
+        scheduler.advance(16);
+        assertEquals(false, timerInterruptRaised());
+        scheduler.advance(4);
+        assertEquals(true, timerInterruptRaised());
+
+        scheduler.advance(4);
+        scheduler.syncTimer();
+        assertEquals(0x42, timer.getCounter());
+        log("Timer interrupt was raised on time.");
+    }
+
+    @Test
+    public void testTimerCatchesUpWhenRead() {
+        scheduler.advance(1000);
+        assertEquals(0, timer.getDivider());
+
+        scheduler.syncTimer();
+        assertEquals(1000 >> 8, timer.getDivider());
+        log("Timer caught up when it was read.");
+    }
+
+    @Test
+    public void testGpuModeChangeIsScheduled() {
+        // the gpu starts out in VRAM_ACCESS, which lasts 172 cycles
+        scheduler.advance(168);
+        assertEquals(3, gpu.lcdStatus.getLcdStat() & 0b11);
+        scheduler.advance(4);
+        assertEquals(0, gpu.lcdStatus.getLcdStat() & 0b11);
+        log("Gpu moved to HBLANK on time.");
+    }
+}
@@ -149,4 +149,47 @@ public class TimerTest extends UnitTest {
         assertEquals(randomModulo, timer.getCounter());
     }
 
+    @Test
+    public void testLongStepMatchesTicking() {
+        // the same writes and waits, once ticking every cycle and once in long steps
+        long seed = new Random().nextLong();
+        int[][] ticked = runTimer(seed, false);
+        int[][] stepped = runTimer(seed, true);
+        for (int i = 0; i < ticked.length; i++) {
+            assertEquals("seed " + seed + ", step " + i + " div", ticked[i][0], stepped[i][0]);
+            assertEquals("seed " + seed + ", step " + i + " tima", ticked[i][1], stepped[i][1]);
+            assertEquals("seed " + seed + ", step " + i + " interrupt", ticked[i][2], stepped[i][2]);
+        }
+    }
+
+    private int[][] runTimer(long seed, boolean longSteps) {
+        Random rng = new Random(seed);
+        TimerService.reset();
+        InterruptManager.reset();
+        timer = TimerService.getInstance();
+
+        int[][] states = new int[500][];
+        for (int i = 0; i < states.length; i++) {
+            switch (rng.nextInt(6)) {
+                case 0: timer.setControl(rng.nextInt(8)); break;
+                case 1: timer.setCounter(0xf0 + rng.nextInt(0x10)); break;
+                case 2: timer.setModulo(rng.nextInt(0x100)); break;
+                case 3: timer.clearDivider(); break;
+                default: break;
+            }
+            int cycles = rng.nextInt(2000);
+            if (longSteps) {
+                timer.step(cycles);
+            }
+            else {
+                for (int j = 0; j < cycles; j++) {
+                    timer.tick();
+                }
+            }
+            states[i] = new int[] { timer.getDivider(), timer.getCounter(),
+                    InterruptManager.getInstance().getInterruptsRaised() };
+        }
+        return states;
+    }
+
 }